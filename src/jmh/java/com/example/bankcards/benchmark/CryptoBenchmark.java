@@ -0,0 +1,105 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.service.CryptoService;
+import com.example.bankcards.service.EncryptedData;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Card number encryption throughput, per record. {@code perCallCipher} reproduces the previous implementation,
+ * which looked a {@link Cipher} up for every value; {@code single*} go through the String API of
+ * {@link CryptoService} with its per-thread cipher, and {@code batch*} through the batch API, which
+ * looks the cipher up once per batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptoBenchmark {
+
+    private static final int BATCH = 100;
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private CryptoService cryptoService;
+    private SecretKey secretKey;
+    private List<String> cardNumbers;
+    private List<byte[]> cardNumberBytes;
+    private List<EncryptedData> sealed;
+
+    @Setup
+    public void setUp() {
+        AppProperties properties = new AppProperties();
+        properties.getCrypto().setSecretKey(SECRET);
+        properties.getCrypto().setFingerprintKey(SECRET);
+        cryptoService = new CryptoService(properties);
+        ReflectionTestUtils.invokeMethod(cryptoService, "init");
+        secretKey = new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "AES");
+        cardNumbers = new ArrayList<>(BATCH);
+        cardNumberBytes = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            String cardNumber = String.format("520000000000%04d", i);
+            cardNumbers.add(cardNumber);
+            cardNumberBytes.add(cardNumber.getBytes(StandardCharsets.UTF_8));
+        }
+        sealed = cryptoService.encryptAll(cardNumberBytes);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void perCallCipher(Blackhole blackhole) throws Exception {
+        for (String cardNumber : cardNumbers) {
+            byte[] iv = new byte[12];
+            secureRandom.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(128, iv));
+            byte[] encrypted = cipher.doFinal(cardNumber.getBytes(StandardCharsets.UTF_8));
+            blackhole.consume(Base64.getEncoder().encodeToString(encrypted));
+            blackhole.consume(Base64.getEncoder().encodeToString(iv));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void singleEncrypt(Blackhole blackhole) {
+        for (String cardNumber : cardNumbers) {
+            blackhole.consume(cryptoService.encrypt(cardNumber));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<EncryptedData> batchEncrypt() {
+        return cryptoService.encryptAll(cardNumberBytes);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<byte[]> batchDecrypt() {
+        return cryptoService.decryptAll(sealed);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.security.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Date;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Token checks that {@code JwtAuthenticationFilter} performs on every authenticated request: reading the subject
+ * and validating the token against the loaded user. {@code perCallParser} reproduces the previous implementation,
+ * which built a parser and verified the signature on each of the two calls; {@code cachedClaims} goes through
+ * {@link JwtService} with its shared parser and verified-claims cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private JwtService jwtService;
+    private Key signingKey;
+    private AuthenticatedUser user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        AppProperties properties = new AppProperties();
+        properties.getJwt().setSecret(SECRET);
+        properties.getJwt().setIssuer("benchmark");
+        properties.getJwt().setAccessTokenExpirationMinutes(60);
+        properties.getJwt().setRefreshTokenExpirationDays(7);
+        properties.getJwt().setVerifiedCacheMaximumSize(10_000);
+        jwtService = new JwtService(properties);
+        signingKey = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        user = new AuthenticatedUser(UUID.randomUUID(), "benchmark-user", "hash", true, Set.of(Role.USER));
+        token = jwtService.generateAccessToken(user);
+    }
+
+    @Benchmark
+    public boolean perCallParser() {
+        String username = parse(token).getSubject();
+        Claims claims = parse(token);
+        return username.equals(user.getUsername())
+                && claims.getSubject().equals(user.getUsername())
+                && !claims.getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public boolean cachedClaims() {
+        String username = jwtService.extractUsername(token);
+        return username.equals(user.getUsername()) && jwtService.isTokenValid(token, user);
+    }
+
+    private Claims parse(String jwt) {
+        return Jwts.parserBuilder().setSigningKey(signingKey).build().parseClaimsJws(jwt).getBody();
+    }
+}
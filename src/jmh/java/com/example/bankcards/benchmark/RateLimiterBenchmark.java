@@ -0,0 +1,68 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.security.TokenBucketLimiter;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost that {@code RateLimitFilter} adds per limited request: one bucket lookup and one compare-and-set.
+ * {@code allowed} uses a bucket that never runs dry, {@code rejected} one that is always empty, and
+ * {@code sharedKey} has every thread hammer the same bucket to show the cost of CAS contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    @Param({"1000"})
+    public int clients;
+
+    private TokenBucketLimiter unlimited;
+    private TokenBucketLimiter exhausted;
+    private String[] keys;
+
+    @Setup
+    public void setUp() {
+        unlimited = new TokenBucketLimiter(Integer.MAX_VALUE, Duration.ofNanos(1));
+        exhausted = new TokenBucketLimiter(1, Duration.ofDays(1));
+        keys = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            keys[i] = "10.0." + (i / 256) + "." + (i % 256);
+            exhausted.tryAcquire(keys[i]);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long allowed() {
+        return unlimited.tryAcquire(keys[ThreadLocalRandom.current().nextInt(clients)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long rejected() {
+        return exhausted.tryAcquire(keys[ThreadLocalRandom.current().nextInt(clients)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long sharedKey() {
+        return unlimited.tryAcquire(keys[0]);
+    }
+}
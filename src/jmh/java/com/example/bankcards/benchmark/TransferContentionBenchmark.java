@@ -0,0 +1,208 @@
+package com.example.bankcards.benchmark;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the two transfer strategies under contention on a small set of hot cards.
+ * <p>
+ * {@code rowLocks} mirrors {@code TransferStrategy.PESSIMISTIC}: an ordered {@code SELECT ... FOR UPDATE}
+ * of both cards followed by two full-row updates. {@code guardedUpdates} mirrors
+ * {@code TransferStrategy.CONDITIONAL_UPDATE}: two guarded single-statement updates decided by their row count.
+ * The statements are issued over plain JDBC so that the numbers reflect database lock hold time rather than
+ * Hibernate overhead. Requires a migrated database, see the README for the connection properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+public class TransferContentionBenchmark {
+
+    private static final String URL = System.getProperty("bench.db.url", "jdbc:postgresql://localhost:5433/bankcards");
+    private static final String USER = System.getProperty("bench.db.user", "bankcards");
+    private static final String PASSWORD = System.getProperty("bench.db.password", "bankcards");
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param({"2", "8"})
+    public int hotCards;
+
+    private UUID ownerId;
+    private final List<UUID> cardIds = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void createCards() throws SQLException {
+        ownerId = UUID.randomUUID();
+        try (Connection connection = connect()) {
+            try (PreparedStatement user = connection.prepareStatement(
+                    "INSERT INTO users (id, username, password_hash, full_name, email, enabled, created_at, updated_at) "
+                            + "VALUES (?, ?, 'n/a', 'Benchmark', ?, true, LOCALTIMESTAMP, LOCALTIMESTAMP)")) {
+                user.setObject(1, ownerId);
+                user.setString(2, "bench-" + ownerId);
+                user.setString(3, "bench-" + ownerId + "@example.com");
+                user.executeUpdate();
+            }
+            try (PreparedStatement card = connection.prepareStatement(
+                    "INSERT INTO cards (id, owner_id, masked_number, last4, card_number_encrypted, card_number_iv, "
+                            + "status, expiration_date, balance, created_at, updated_at) VALUES (?, ?, "
+                            + "'**** **** **** 0000', '0000', ?, 'n/a', 'ACTIVE', CURRENT_DATE + 365, 1000000000, "
+                            + "LOCALTIMESTAMP, LOCALTIMESTAMP)")) {
+                for (int i = 0; i < hotCards; i++) {
+                    UUID id = UUID.randomUUID();
+                    card.setObject(1, id);
+                    card.setObject(2, ownerId);
+                    card.setString(3, id.toString());
+                    card.executeUpdate();
+                    cardIds.add(id);
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void dropCards() throws SQLException {
+        try (Connection connection = connect();
+             PreparedStatement cards = connection.prepareStatement("DELETE FROM cards WHERE owner_id = ?");
+             PreparedStatement user = connection.prepareStatement("DELETE FROM users WHERE id = ?")) {
+            cards.setObject(1, ownerId);
+            cards.executeUpdate();
+            user.setObject(1, ownerId);
+            user.executeUpdate();
+        }
+        cardIds.clear();
+    }
+
+    @State(Scope.Thread)
+    public static class Session {
+        Connection connection;
+
+        @Setup(Level.Trial)
+        public void open() throws SQLException {
+            connection = connect();
+            connection.setAutoCommit(false);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws SQLException {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public void rowLocks(Session session) throws SQLException {
+        UUID[] pair = pickPair();
+        Connection connection = session.connection;
+        try (PreparedStatement lock = connection.prepareStatement(
+                "SELECT id, balance FROM cards WHERE id IN (?, ?) ORDER BY id FOR NO KEY UPDATE");
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE cards SET owner_id = ?, status = 'ACTIVE', expiration_date = CURRENT_DATE + 365, "
+                             + "balance = ?, updated_at = LOCALTIMESTAMP WHERE id = ?")) {
+            lock.setObject(1, pair[0]);
+            lock.setObject(2, pair[1]);
+            BigDecimal sourceBalance = null;
+            BigDecimal targetBalance = null;
+            try (ResultSet rows = lock.executeQuery()) {
+                while (rows.next()) {
+                    if (pair[0].equals(rows.getObject(1, UUID.class))) {
+                        sourceBalance = rows.getBigDecimal(2);
+                    } else {
+                        targetBalance = rows.getBigDecimal(2);
+                    }
+                }
+            }
+            if (sourceBalance == null || targetBalance == null || sourceBalance.compareTo(AMOUNT) < 0) {
+                connection.rollback();
+                return;
+            }
+            updateBalance(update, pair[0], sourceBalance.subtract(AMOUNT));
+            updateBalance(update, pair[1], targetBalance.add(AMOUNT));
+            connection.commit();
+        } catch (SQLException ex) {
+            connection.rollback();
+            throw ex;
+        }
+    }
+
+    @Benchmark
+    public void guardedUpdates(Session session) throws SQLException {
+        UUID[] pair = pickPair();
+        Connection connection = session.connection;
+        try (PreparedStatement debit = connection.prepareStatement(
+                "UPDATE cards SET balance = balance - ?, updated_at = LOCALTIMESTAMP WHERE id = ? AND owner_id = ? "
+                        + "AND balance >= ? AND status = 'ACTIVE' AND expiration_date >= CURRENT_DATE");
+             PreparedStatement credit = connection.prepareStatement(
+                     "UPDATE cards SET balance = balance + ?, updated_at = LOCALTIMESTAMP WHERE id = ? AND owner_id = ? "
+                             + "AND status = 'ACTIVE' AND expiration_date >= CURRENT_DATE")) {
+            boolean sourceFirst = compareUnsigned(pair[0], pair[1]) < 0;
+            boolean applied = sourceFirst
+                    ? guarded(debit, pair[0], true) && guarded(credit, pair[1], false)
+                    : guarded(credit, pair[1], false) && guarded(debit, pair[0], true);
+            if (applied) {
+                connection.commit();
+            } else {
+                connection.rollback();
+            }
+        } catch (SQLException ex) {
+            connection.rollback();
+            throw ex;
+        }
+    }
+
+    private boolean guarded(PreparedStatement statement, UUID cardId, boolean checkBalance) throws SQLException {
+        statement.setBigDecimal(1, AMOUNT);
+        statement.setObject(2, cardId);
+        statement.setObject(3, ownerId);
+        if (checkBalance) {
+            statement.setBigDecimal(4, AMOUNT);
+        }
+        return statement.executeUpdate() == 1;
+    }
+
+    private void updateBalance(PreparedStatement update, UUID cardId, BigDecimal balance) throws SQLException {
+        update.setObject(1, ownerId);
+        update.setBigDecimal(2, balance);
+        update.setObject(3, cardId);
+        update.executeUpdate();
+    }
+
+    private UUID[] pickPair() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int source = random.nextInt(cardIds.size());
+        int target = (source + 1 + random.nextInt(cardIds.size() - 1)) % cardIds.size();
+        return new UUID[]{cardIds.get(source), cardIds.get(target)};
+    }
+
+    private static int compareUnsigned(UUID left, UUID right) {
+        int result = Long.compareUnsigned(left.getMostSignificantBits(), right.getMostSignificantBits());
+        return result != 0 ? result : Long.compareUnsigned(left.getLeastSignificantBits(), right.getLeastSignificantBits());
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(URL, USER, PASSWORD);
+    }
+}
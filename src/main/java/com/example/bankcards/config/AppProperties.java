@@ -1,9 +1,15 @@
 package com.example.bankcards.config;
 
+import com.example.bankcards.security.RateLimitKey;
+import com.example.bankcards.service.TransferStrategy;
 import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -21,14 +27,91 @@ public class AppProperties {
     @NotNull
     private final Jwt jwt = new Jwt();
 
+    @NotNull
+    private final UserDetailsCache userDetailsCache = new UserDetailsCache();
+
+    @NotNull
+    private final CardCache cardCache = new CardCache();
+
+    @NotNull
+    private final ListingCountCache listingCountCache = new ListingCountCache();
+
+    @NotNull
+    private final PasswordHashing passwordHashing = new PasswordHashing();
+
+    @NotNull
+    private final LastLogin lastLogin = new LastLogin();
+
+    @NotNull
+    private final RateLimit rateLimit = new RateLimit();
+
     @NotNull
     private final Init init = new Init();
 
+    @NotNull
+    private final Transfer transfer = new Transfer();
+
+    @NotNull
+    private final Ledger ledger = new Ledger();
+
     @Getter
     @Setter
     public static class Crypto {
+        /** AES key for key version {@code 1}. */
         @NotBlank
         private String secretKey;
+
+        /** Further AES keys by key version; every configured version stays readable. */
+        @NotNull
+        private final Map<Integer, String> keys = new LinkedHashMap<>();
+
+        /** Key version new card numbers are encrypted under and older ones are rotated to. */
+        @Min(1)
+        private int activeKeyVersion = 1;
+
+        @NotNull
+        private final KeyRotation rotation = new KeyRotation();
+
+        /** HMAC key for card number fingerprints; kept apart from {@link #secretKey} so neither reveals the other. */
+        @NotBlank
+        private String fingerprintKey;
+
+        @NotNull
+        private final FingerprintBackfill fingerprintBackfill = new FingerprintBackfill();
+    }
+
+    @Getter
+    @Setter
+    public static class KeyRotation {
+        private boolean enabled;
+
+        /** How often to look for card numbers still encrypted under an older key version. */
+        @NotNull
+        private Duration interval;
+
+        @Min(1)
+        private int chunkSize;
+
+        @Min(1)
+        private int threads;
+
+        /** Pause after each committed chunk, to leave database and CPU headroom for regular traffic. */
+        @NotNull
+        private Duration chunkPause;
+    }
+
+    @Getter
+    @Setter
+    public static class FingerprintBackfill {
+        private boolean enabled;
+
+        /** How often to look for cards issued before fingerprints existed, until none are left. */
+        @NotNull
+        private Duration interval;
+
+        /** Pause after each committed batch, to leave database and CPU headroom for regular traffic. */
+        @NotNull
+        private Duration chunkPause;
     }
 
     @Getter
@@ -45,6 +128,206 @@ public class AppProperties {
 
         @Min(1)
         private long refreshTokenExpirationDays;
+
+        @Min(1)
+        private long verifiedCacheMaximumSize;
+
+        @NotNull
+        private final StatelessPrincipal statelessPrincipal = new StatelessPrincipal();
+    }
+
+    @Getter
+    @Setter
+    public static class StatelessPrincipal {
+        private boolean enabled;
+
+        @NotNull
+        private Duration refreshInterval;
+    }
+
+    @Getter
+    @Setter
+    public static class UserDetailsCache {
+        @Min(1)
+        private long maximumSize;
+
+        @NotNull
+        private Duration ttl;
+    }
+
+    @Getter
+    @Setter
+    public static class CardCache {
+        @Min(1)
+        private long maximumSize;
+
+        /** Upper bound on how stale a card served from the cache can be after a change on another instance. */
+        @NotNull
+        private Duration ttl;
+    }
+
+    @Getter
+    @Setter
+    public static class ListingCountCache {
+        @Min(1)
+        private long maximumSize;
+
+        /** How long an estimated listing total is reused before the rows are counted again. */
+        @NotNull
+        private Duration ttl;
+    }
+
+    @Getter
+    @Setter
+    public static class PasswordHashing {
+        /** Fixed BCrypt cost; when unset the cost is calibrated against {@link #targetLatency} at startup. */
+        private Integer cost;
+
+        @NotNull
+        private Duration targetLatency;
+
+        @Min(4)
+        private int minCost;
+
+        @Max(31)
+        private int maxCost;
+
+        /** Hashing threads; {@code 0} uses one per available processor. */
+        @Min(0)
+        private int threads;
+
+        @Min(1)
+        private int queueCapacity;
+
+        @NotNull
+        private Duration retryAfter;
+    }
+
+    @Getter
+    @Setter
+    public static class LastLogin {
+        @NotNull
+        private Duration flushInterval;
+
+        @Min(1)
+        private int batchSize;
+    }
+
+    @Getter
+    @Setter
+    public static class RateLimit {
+        private boolean enabled;
+
+        /** How often buckets that have refilled completely are dropped. */
+        @NotNull
+        private Duration sweepInterval;
+
+        @NotNull
+        private final Map<String, RateLimitRoute> routes = new LinkedHashMap<>();
+    }
+
+    @Getter
+    @Setter
+    public static class RateLimitRoute {
+        @NotBlank
+        private String path;
+
+        /** HTTP method the route applies to; any method when unset. */
+        private String method;
+
+        @NotNull
+        private RateLimitKey key = RateLimitKey.IP;
+
+        @Min(1)
+        private int capacity;
+
+        /** Time it takes to regain one token. */
+        @NotNull
+        private Duration refillPeriod;
+    }
+
+    @Getter
+    @Setter
+    public static class Transfer {
+        @NotNull
+        private TransferStrategy strategy = TransferStrategy.PESSIMISTIC;
+
+        @NotNull
+        private final Idempotency idempotency = new Idempotency();
+
+        @NotNull
+        private final Async async = new Async();
+
+        @NotNull
+        private final Optimistic optimistic = new Optimistic();
+
+        @NotNull
+        private final Export export = new Export();
+    }
+
+    @Getter
+    @Setter
+    public static class Idempotency {
+        @Min(1)
+        private long cacheMaximumSize;
+
+        @NotNull
+        private Duration cacheTtl;
+    }
+
+    @Getter
+    @Setter
+    public static class Async {
+        private boolean enabled;
+
+        @Min(1)
+        private int batchSize;
+
+        @Min(1)
+        private int workerThreads;
+
+        @NotNull
+        private Duration pollInterval;
+    }
+
+    @Getter
+    @Setter
+    public static class Optimistic {
+        @Min(1)
+        private int maxAttempts;
+
+        @NotNull
+        private Duration initialBackoff;
+
+        @NotNull
+        private Duration maxBackoff;
+    }
+
+    @Getter
+    @Setter
+    public static class Export {
+        /** How long a transfer history export may take before the request is timed out. */
+        @NotNull
+        private Duration timeout;
+    }
+
+    @Getter
+    @Setter
+    public static class Ledger {
+        @NotNull
+        private final Snapshot snapshot = new Snapshot();
+    }
+
+    @Getter
+    @Setter
+    public static class Snapshot {
+        private boolean enabled;
+
+        @NotNull
+        private Duration interval;
+
+        @NotNull
+        private Duration settleLag;
     }
 
     @Getter
@@ -1,6 +1,7 @@
 package com.example.bankcards.config;
 
 import com.example.bankcards.dto.card.CardCreateRequest;
+import com.example.bankcards.dto.common.CountMode;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.UserAccount;
 import com.example.bankcards.exception.BusinessException;
@@ -83,7 +84,7 @@ public class DataInitializer implements CommandLineRunner {
                 });
 
         long existingCards = cardService
-                .findCardsForOwner(owner.getId(), null, PageRequest.of(0, 1))
+                .findCardsForOwner(owner.getId(), null, PageRequest.of(0, 1), CountMode.EXACT)
                 .totalElements();
         if (existingCards >= targetCount) {
             log.info(
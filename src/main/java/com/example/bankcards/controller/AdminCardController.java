@@ -2,15 +2,22 @@ package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.card.CardCreateRequest;
 import com.example.bankcards.dto.card.CardFilterRequest;
+import com.example.bankcards.dto.card.CardNumberLookupRequest;
 import com.example.bankcards.dto.card.CardResponse;
+import com.example.bankcards.dto.card.CardSortKey;
 import com.example.bankcards.dto.card.CardStatusUpdateRequest;
+import com.example.bankcards.dto.common.CursorPage;
+import com.example.bankcards.dto.common.CountMode;
 import com.example.bankcards.dto.common.PageResponse;
 import com.example.bankcards.service.CardService;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -22,6 +29,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -40,6 +48,12 @@ public class AdminCardController {
         return cardService.createCard(request);
     }
 
+    @PostMapping("/lookup")
+    @PreAuthorize("hasRole('ADMIN')")
+    public CardResponse findByCardNumber(@Valid @RequestBody CardNumberLookupRequest request) {
+        return cardService.findByCardNumber(request.cardNumber());
+    }
+
     @PatchMapping("/{cardId}/status")
     @PreAuthorize("hasRole('ADMIN')")
     public CardResponse updateStatus(
@@ -51,8 +65,23 @@ public class AdminCardController {
     @PreAuthorize("hasRole('ADMIN')")
     public PageResponse<CardResponse> findCards(
             @ParameterObject CardFilterRequest filter,
+            @RequestParam(defaultValue = "EXACT") CountMode count,
             @ParameterObject @PageableDefault(size = 20) Pageable pageable) {
-        return cardService.findCards(filter, pageable);
+        return cardService.findCards(filter, pageable, count);
+    }
+
+    @GetMapping("/scroll")
+    @PreAuthorize("hasRole('ADMIN')")
+    public CursorPage<CardResponse> scrollCards(
+            @ParameterObject CardFilterRequest filter,
+            @RequestParam(defaultValue = "CREATED_AT") CardSortKey sort,
+            @RequestParam(defaultValue = "DESC") Sort.Direction direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20")
+            @Min(value = 1, message = "Size must be at least 1")
+            @Max(value = 100, message = "Size must not exceed 100")
+                    int size) {
+        return cardService.scrollCards(filter, sort, direction, cursor, size);
     }
 
     @GetMapping("/{cardId}")
@@ -1,5 +1,6 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.common.CountMode;
 import com.example.bankcards.dto.common.PageResponse;
 import com.example.bankcards.dto.user.UserCreateRequest;
 import com.example.bankcards.dto.user.UserResponse;
@@ -44,8 +45,9 @@ public class AdminUserController {
     @PreAuthorize("hasRole('ADMIN')")
     public PageResponse<UserResponse> listUsers(
             @RequestParam(required = false) String search,
+            @RequestParam(defaultValue = "EXACT") CountMode count,
             @ParameterObject @PageableDefault(size = 20) Pageable pageable) {
-        return adminUserService.listUsers(search, pageable);
+        return adminUserService.listUsers(search, pageable, count);
     }
 
     @GetMapping("/{userId}")
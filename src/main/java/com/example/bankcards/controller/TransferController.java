@@ -1,26 +1,42 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.dto.common.CursorPage;
+import com.example.bankcards.dto.common.CountMode;
 import com.example.bankcards.dto.common.PageResponse;
+import com.example.bankcards.dto.transfer.TransferExportFormat;
 import com.example.bankcards.dto.transfer.TransferRequest;
 import com.example.bankcards.dto.transfer.TransferResponse;
+import com.example.bankcards.entity.Role;
 import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.service.TransferExportService;
 import com.example.bankcards.service.TransferService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
 @RestController
 @RequestMapping("/api/cards/transfers")
@@ -28,23 +44,90 @@ import org.springframework.web.bind.annotation.RestController;
 @Validated
 public class TransferController {
 
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final TransferService transferService;
+    private final TransferExportService exportService;
+    private final AppProperties properties;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     @PreAuthorize("hasRole('USER')")
     public TransferResponse transfer(
             @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false)
+            @Size(min = 1, max = 128, message = "Idempotency key must be between 1 and 128 characters")
+                    String idempotencyKey,
             @Valid @RequestBody TransferRequest request) {
         UUID userId = user.id();
-        return transferService.transferBetweenOwnCards(userId, request);
+        return transferService.transferBetweenOwnCards(userId, request, idempotencyKey);
+    }
+
+    @PostMapping("/async")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @PreAuthorize("hasRole('USER')")
+    public TransferResponse submitTransfer(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false)
+            @Size(min = 1, max = 128, message = "Idempotency key must be between 1 and 128 characters")
+                    String idempotencyKey,
+            @Valid @RequestBody TransferRequest request) {
+        return transferService.submitTransfer(user.id(), request, idempotencyKey);
+    }
+
+    @GetMapping("/{transferId}")
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    public TransferResponse getTransfer(
+            @AuthenticationPrincipal AuthenticatedUser user, @PathVariable UUID transferId) {
+        if (user.hasRole(Role.ADMIN)) {
+            return transferService.getTransfer(transferId);
+        }
+        return transferService.getTransfer(transferId, user.id());
     }
 
     @GetMapping
     @PreAuthorize("hasAnyRole('USER','ADMIN')")
     public PageResponse<TransferResponse> history(
             @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestParam(defaultValue = "EXACT") CountMode count,
             @ParameterObject @PageableDefault(size = 20) Pageable pageable) {
-        return transferService.getUserTransfers(user.id(), pageable);
+        return transferService.getUserTransfers(user.id(), pageable, count);
+    }
+
+    @GetMapping("/history")
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    public CursorPage<TransferResponse> historyByCursor(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20")
+            @Min(value = 1, message = "Size must be at least 1")
+            @Max(value = 100, message = "Size must not exceed 100")
+                    int size) {
+        return transferService.getUserTransferHistory(user.id(), cursor, size);
+    }
+
+    /**
+     * Streams the user's full transfer history as CSV or newline-delimited JSON. The response is written from a
+     * database cursor on an async request thread and is not buffered in memory. Large histories take a while, so
+     * the export has its own async timeout instead of the container default used by other requests.
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    public WebAsyncTask<Void> export(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletResponse response) {
+        UUID userId = user.id();
+        TransferExportFormat exportFormat = TransferExportFormat.fromParameter(format);
+        ContentDisposition disposition = ContentDisposition.attachment()
+                .filename("transfers." + exportFormat.fileExtension())
+                .build();
+        response.setContentType(exportFormat.mediaType().toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition.toString());
+        long timeout = properties.getTransfer().getExport().getTimeout().toMillis();
+        return new WebAsyncTask<>(timeout, () -> {
+            exportService.export(userId, exportFormat, response.getOutputStream());
+            return null;
+        });
     }
 }
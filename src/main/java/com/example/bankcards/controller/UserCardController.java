@@ -1,19 +1,28 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.card.CardBalanceResponse;
 import com.example.bankcards.dto.card.CardFilterRequest;
 import com.example.bankcards.dto.card.CardResponse;
+import com.example.bankcards.dto.card.CardSortKey;
+import com.example.bankcards.dto.common.CursorPage;
+import com.example.bankcards.dto.common.CountMode;
 import com.example.bankcards.dto.common.PageResponse;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.security.AuthenticatedUser;
 import com.example.bankcards.service.CardService;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -42,13 +51,37 @@ public class UserCardController {
             @RequestParam(required = false) String maskedNumber,
             @RequestParam(required = false) BigDecimal minBalance,
             @RequestParam(required = false) BigDecimal maxBalance,
+            @RequestParam(defaultValue = "EXACT") CountMode count,
             @ParameterObject @PageableDefault(size = 20) Pageable pageable) {
         CardFilterRequest filter = new CardFilterRequest();
         filter.setStatus(status);
         filter.setMaskedNumber(maskedNumber);
         filter.setMinBalance(minBalance);
         filter.setMaxBalance(maxBalance);
-        return cardService.findCardsForOwner(user.id(), filter, pageable);
+        return cardService.findCardsForOwner(user.id(), filter, pageable, count);
+    }
+
+    @GetMapping("/scroll")
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    public CursorPage<CardResponse> scrollMyCards(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestParam(required = false) CardStatus status,
+            @RequestParam(required = false) String maskedNumber,
+            @RequestParam(required = false) BigDecimal minBalance,
+            @RequestParam(required = false) BigDecimal maxBalance,
+            @RequestParam(defaultValue = "CREATED_AT") CardSortKey sort,
+            @RequestParam(defaultValue = "DESC") Sort.Direction direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20")
+            @Min(value = 1, message = "Size must be at least 1")
+            @Max(value = 100, message = "Size must not exceed 100")
+                    int size) {
+        CardFilterRequest filter = new CardFilterRequest();
+        filter.setStatus(status);
+        filter.setMaskedNumber(maskedNumber);
+        filter.setMinBalance(minBalance);
+        filter.setMaxBalance(maxBalance);
+        return cardService.scrollCardsForOwner(user.id(), filter, sort, direction, cursor, size);
     }
 
     @GetMapping("/{cardId}")
@@ -61,6 +94,18 @@ public class UserCardController {
         return cardService.getCardForOwner(cardId, user.id());
     }
 
+    @GetMapping("/{cardId}/balance")
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    public CardBalanceResponse getBalanceAt(
+            @AuthenticationPrincipal @NotNull AuthenticatedUser user,
+            @PathVariable UUID cardId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        if (user.hasRole(Role.ADMIN)) {
+            return cardService.getBalanceAt(cardId, at);
+        }
+        return cardService.getBalanceAtForOwner(cardId, user.id(), at);
+    }
+
     @PostMapping("/{cardId}/block-request")
     @ResponseStatus(HttpStatus.ACCEPTED)
     @PreAuthorize("hasRole('USER')")
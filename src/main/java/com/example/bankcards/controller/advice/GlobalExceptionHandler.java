@@ -6,6 +6,7 @@ import com.example.bankcards.exception.BankCardsException;
 import com.example.bankcards.exception.BusinessException;
 import com.example.bankcards.exception.CryptoException;
 import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.exception.ServiceUnavailableException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
@@ -14,12 +15,16 @@ import java.util.ArrayList;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
@@ -36,6 +41,30 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(HttpStatus.BAD_REQUEST, ex.getMessage(), request, List.of());
     }
 
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ApiError> handleConcurrentModification(
+            OptimisticLockingFailureException ex, HttpServletRequest request) {
+        return buildErrorResponse(
+                HttpStatus.CONFLICT, "Resource was modified concurrently, please retry", request, List.of());
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ApiError> handleServiceUnavailable(
+            ServiceUnavailableException ex, HttpServletRequest request) {
+        ResponseEntity<ApiError> response =
+                buildErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), request, List.of());
+        long retryAfterSeconds = Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(response.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+                .body(response.getBody());
+    }
+
+    @ExceptionHandler(AsyncRequestTimeoutException.class)
+    public ResponseEntity<ApiError> handleAsyncRequestTimeout(
+            AsyncRequestTimeoutException ex, HttpServletRequest request) {
+        return buildErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, "Request timed out", request, List.of());
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiError> handleMethodArgumentNotValid(
             MethodArgumentNotValidException ex, HttpServletRequest request) {
@@ -61,6 +90,14 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(HttpStatus.BAD_REQUEST, message, request, violations);
     }
 
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<ApiError> handleTypeMismatch(
+            MethodArgumentTypeMismatchException ex, HttpServletRequest request) {
+        List<ApiValidationError> violations = List.of(new ApiValidationError(
+                ex.getName(), "Invalid value", ex.getValue()));
+        return buildErrorResponse(HttpStatus.BAD_REQUEST, "Validation failed", request, violations);
+    }
+
     @ExceptionHandler(BankCardsException.class)
     public ResponseEntity<ApiError> handleDomain(BankCardsException ex, HttpServletRequest request) {
         HttpStatus status = ex instanceof CryptoException ? HttpStatus.INTERNAL_SERVER_ERROR : HttpStatus.BAD_REQUEST;
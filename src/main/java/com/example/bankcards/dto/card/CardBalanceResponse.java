@@ -0,0 +1,11 @@
+package com.example.bankcards.dto.card;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record CardBalanceResponse(
+        UUID cardId,
+        BigDecimal balance,
+        LocalDateTime at) {
+}
@@ -0,0 +1,10 @@
+package com.example.bankcards.dto.card;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+
+public record CardNumberLookupRequest(
+        @NotBlank(message = "Card number is required")
+        @Pattern(regexp = "\\d{16}", message = "Card number must contain exactly 16 digits")
+                String cardNumber) {
+}
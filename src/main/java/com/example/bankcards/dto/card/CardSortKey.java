@@ -0,0 +1,21 @@
+package com.example.bankcards.dto.card;
+
+/**
+ * Columns a keyset card listing can be ordered by. Ties are always broken by card id. Only {@link #CREATED_AT} is
+ * backed by an index: balances change on every transfer, and indexing them would make each of those updates
+ * rewrite index entries as well.
+ */
+public enum CardSortKey {
+    CREATED_AT("createdAt"),
+    BALANCE("balance");
+
+    private final String property;
+
+    CardSortKey(String property) {
+        this.property = property;
+    }
+
+    public String property() {
+        return property;
+    }
+}
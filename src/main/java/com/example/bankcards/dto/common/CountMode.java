@@ -0,0 +1,25 @@
+package com.example.bankcards.dto.common;
+
+import java.util.Locale;
+
+/**
+ * How the totals of a {@link PageResponse} are obtained.
+ */
+public enum CountMode {
+
+    /** Totals come from a {@code COUNT} query run alongside the page. */
+    EXACT,
+
+    /** Totals come from a recently cached count for the same filter and may lag behind by a few seconds. */
+    ESTIMATE,
+
+    /** No count is taken; the response only says whether a next page exists. */
+    NONE;
+
+    /**
+     * Parses the {@code count} request parameter, ignoring case.
+     */
+    public static CountMode from(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.bankcards.dto.common;
+
+import java.util.List;
+
+/**
+ * A page of a keyset-paginated listing. {@code nextCursor} is {@code null} on the last page.
+ */
+public record CursorPage<T>(
+        List<T> items,
+        String nextCursor) {
+}
@@ -2,14 +2,20 @@ package com.example.bankcards.dto.common;
 
 import java.util.List;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
+/**
+ * A page of an offset-paginated listing. {@code count} tells how {@code totalElements} and {@code totalPages} were
+ * obtained; both are {@code null} when no count was taken.
+ */
 public record PageResponse<T>(
         List<T> items,
         int page,
         int size,
-        long totalElements,
-        int totalPages,
-        boolean last) {
+        Long totalElements,
+        Integer totalPages,
+        boolean last,
+        CountMode count) {
 
     public static <T> PageResponse<T> from(Page<T> page) {
         return new PageResponse<>(
@@ -18,6 +24,36 @@ public record PageResponse<T>(
                 page.getSize(),
                 page.getTotalElements(),
                 page.getTotalPages(),
-                page.isLast());
+                page.isLast(),
+                CountMode.EXACT);
+    }
+
+    public static <T> PageResponse<T> from(Slice<T> slice) {
+        return new PageResponse<>(
+                slice.getContent(),
+                slice.getNumber(),
+                slice.getSize(),
+                null,
+                null,
+                slice.isLast(),
+                CountMode.NONE);
+    }
+
+    /**
+     * Page whose totals are derived from an approximate row count. The count is raised where needed so that it
+     * never contradicts the slice itself.
+     */
+    public static <T> PageResponse<T> estimated(Slice<T> slice, long estimatedTotal) {
+        long seen = slice.getPageable().getOffset() + slice.getNumberOfElements();
+        long total = Math.max(estimatedTotal, slice.hasNext() ? seen + 1 : seen);
+        int size = slice.getSize();
+        return new PageResponse<>(
+                slice.getContent(),
+                slice.getNumber(),
+                size,
+                total,
+                size == 0 ? 1 : (int) Math.ceil((double) total / size),
+                slice.isLast(),
+                CountMode.ESTIMATE);
     }
 }
@@ -12,5 +12,6 @@ public record TransferResponse(
         BigDecimal amount,
         TransferStatus status,
         String description,
-        LocalDateTime createdAt) {
+        LocalDateTime createdAt,
+        String failureReason) {
 }
@@ -0,0 +1,36 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Balance of a card after all of its ledger entries up to and including {@code lastSequence}. Every one of those
+ * entries was created before {@code takenAt}.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "balance_snapshots")
+public class BalanceSnapshot extends BaseEntity {
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "card_id", nullable = false, updatable = false)
+    private Card card;
+
+    @Column(name = "last_sequence", nullable = false, updatable = false)
+    private long lastSequence;
+
+    @Column(name = "balance", nullable = false, updatable = false, precision = 19, scale = 2)
+    private BigDecimal balance;
+
+    @Column(name = "taken_at", nullable = false, updatable = false)
+    private LocalDateTime takenAt;
+}
@@ -8,14 +8,21 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
 
+/**
+ * Updated with only the columns that changed, so flushing a card loaded before a bulk rewrite of its number (see
+ * {@code CardRepository#updateSealedNumbers}) does not write the old ciphertext back.
+ */
 @Getter
 @Setter
 @Entity
+@DynamicUpdate
 @Table(name = "cards")
 public class Card extends BaseEntity {
 
@@ -26,12 +33,30 @@ public class Card extends BaseEntity {
     @Column(name = "masked_number", nullable = false, length = 19)
     private String maskedNumber;
 
-    @Column(name = "card_number_encrypted", nullable = false, columnDefinition = "text")
+    /** Last four digits of the card number, indexed for card number search. */
+    @Column(name = "last4", nullable = false, length = 4)
+    private String last4;
+
+    /** Card number sealed as {@code IV || ciphertext || tag}. */
+    @Column(name = "card_number_sealed")
+    private byte[] sealedNumber;
+
+    /** Base64 ciphertext of cards written before {@link #sealedNumber}; cleared once the row is migrated. */
+    @Column(name = "card_number_encrypted", columnDefinition = "text")
     private String encryptedNumber;
 
-    @Column(name = "card_number_iv", nullable = false, length = 64)
+    /** Base64 IV of cards written before {@link #sealedNumber}; cleared once the row is migrated. */
+    @Column(name = "card_number_iv", length = 64)
     private String encryptionIv;
 
+    /** Version of the key the card number is encrypted under. */
+    @Column(name = "key_version", nullable = false)
+    private int keyVersion;
+
+    /** Keyed HMAC of the full card number, for exact-match lookups without decryption. */
+    @Column(name = "pan_fingerprint", unique = true, length = 64)
+    private String panFingerprint;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false, length = 32)
     private CardStatus status;
@@ -41,5 +66,9 @@ public class Card extends BaseEntity {
 
     @Column(name = "balance", nullable = false, precision = 19, scale = 2)
     private BigDecimal balance;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
 }
 
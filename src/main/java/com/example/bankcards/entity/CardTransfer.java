@@ -35,5 +35,8 @@ public class CardTransfer extends BaseEntity {
 
     @Column(name = "description", length = 255)
     private String description;
+
+    @Column(name = "failure_reason", length = 255)
+    private String failureReason;
 }
 
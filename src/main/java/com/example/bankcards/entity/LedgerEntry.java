@@ -0,0 +1,51 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * One leg of a balance change. Entries are append-only and written with native inserts that take
+ * {@code sequence} from {@code ledger_entry_seq}; debits carry a negative amount, so the entries of a card always
+ * sum to its balance. Entries are kept when the card or transfer they reference is deleted.
+ */
+@Getter
+@Setter
+@Entity
+@Immutable
+@Table(name = "ledger_entries")
+public class LedgerEntry {
+
+    @Id
+    @Column(name = "sequence", nullable = false, updatable = false)
+    private Long sequence;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "card_id", nullable = false, updatable = false)
+    private Card card;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "transfer_id", updatable = false)
+    private CardTransfer transfer;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false, updatable = false, length = 16)
+    private LedgerEntryType entryType;
+
+    @Column(name = "amount", nullable = false, updatable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
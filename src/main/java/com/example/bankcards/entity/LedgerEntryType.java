@@ -0,0 +1,7 @@
+package com.example.bankcards.entity;
+
+public enum LedgerEntryType {
+    OPENING,
+    DEBIT,
+    CREDIT
+}
@@ -36,6 +36,9 @@ public class UserAccount extends BaseEntity {
     @Column(name = "enabled", nullable = false)
     private boolean enabled = true;
 
+    @Column(name = "security_version", nullable = false)
+    private long securityVersion;
+
     @Column(name = "last_login_at")
     private LocalDateTime lastLoginAt;
 
@@ -0,0 +1,17 @@
+package com.example.bankcards.exception;
+
+import java.time.Duration;
+
+public class ServiceUnavailableException extends BankCardsException {
+
+    private final Duration retryAfter;
+
+    public ServiceUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -2,6 +2,7 @@ package com.example.bankcards.mapper;
 
 import com.example.bankcards.dto.card.CardResponse;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardListingRow;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -20,4 +21,15 @@ public class CardMapper {
                 card.getExpirationDate(),
                 card.getBalance());
     }
+
+    public CardResponse toResponse(CardListingRow row) {
+        return new CardResponse(
+                row.id(),
+                row.ownerId(),
+                row.ownerFullName(),
+                row.maskedNumber(),
+                row.status(),
+                row.expirationDate(),
+                row.balance());
+    }
 }
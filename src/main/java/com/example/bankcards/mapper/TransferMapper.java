@@ -18,6 +18,7 @@ public class TransferMapper {
                 transfer.getAmount(),
                 transfer.getStatus(),
                 transfer.getDescription(),
-                transfer.getCreatedAt());
+                transfer.getCreatedAt(),
+                transfer.getFailureReason());
     }
 }
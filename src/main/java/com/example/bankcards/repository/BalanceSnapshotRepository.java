@@ -0,0 +1,46 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.BalanceSnapshot;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, UUID> {
+
+    Optional<BalanceSnapshot> findFirstByCardIdAndTakenAtLessThanEqualOrderByTakenAtDesc(
+            UUID cardId, LocalDateTime takenAt);
+
+    @Query("select coalesce(max(s.lastSequence), 0) from BalanceSnapshot s")
+    long findLastSnapshotSequence();
+
+    /**
+     * Serializes snapshot runs across application instances for the rest of the current transaction.
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('balance_snapshots'))", nativeQuery = true)
+    boolean tryLockSnapshots();
+
+    /**
+     * Writes a new snapshot for every card with ledger entries in {@code (fromSequence, toSequence]}, adding
+     * their sum to the card's latest snapshot. Cards without new entries keep their previous snapshot; entries of
+     * cards deleted since are kept in the ledger but not snapshotted.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO balance_snapshots "
+            + "(card_id, last_sequence, balance, taken_at, created_at, updated_at) "
+            + "SELECT d.card_id, d.last_sequence, COALESCE(s.balance, 0) + d.delta, :takenAt, "
+            + "LOCALTIMESTAMP, LOCALTIMESTAMP "
+            + "FROM (SELECT e.card_id, MAX(e.sequence) AS last_sequence, SUM(e.amount) AS delta "
+            + "FROM ledger_entries e JOIN cards c ON c.id = e.card_id "
+            + "WHERE e.sequence > :fromSequence AND e.sequence <= :toSequence "
+            + "GROUP BY e.card_id) d "
+            + "LEFT JOIN LATERAL (SELECT b.balance FROM balance_snapshots b WHERE b.card_id = d.card_id "
+            + "ORDER BY b.last_sequence DESC LIMIT 1) s ON TRUE", nativeQuery = true)
+    int insertSnapshots(
+            @Param("fromSequence") long fromSequence,
+            @Param("toSequence") long toSequence,
+            @Param("takenAt") LocalDateTime takenAt);
+}
@@ -0,0 +1,7 @@
+package com.example.bankcards.repository;
+
+import java.util.UUID;
+
+public record CardCipherRef(
+        UUID id, byte[] sealedNumber, String encryptedNumber, String encryptionIv, int keyVersion) {
+}
@@ -0,0 +1,25 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import java.util.List;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Card listings read as {@link CardListingRow}s. Each page is one statement joining {@code cards} to
+ * {@code users}, so neither the lazy owner nor its roles are loaded card by card.
+ */
+public interface CardListingRepository {
+
+    Page<CardListingRow> findListingRows(Specification<Card> spec, Pageable pageable);
+
+    /**
+     * Same rows as {@link #findListingRows(Specification, Pageable)}, without the count query.
+     */
+    Slice<CardListingRow> findListingRowSlice(Specification<Card> spec, Pageable pageable);
+
+    List<CardListingRow> findListingRows(Specification<Card> spec, Sort sort, int limit);
+}
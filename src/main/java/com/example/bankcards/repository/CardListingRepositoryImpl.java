@@ -0,0 +1,79 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.UserAccount;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import java.util.List;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+class CardListingRepositoryImpl implements CardListingRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<CardListingRow> findListingRows(Specification<Card> spec, Pageable pageable) {
+        List<CardListingRow> rows = rowQuery(spec, pageable.getSort())
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+        return PageableExecutionUtils.getPage(rows, pageable, () -> count(spec));
+    }
+
+    @Override
+    public Slice<CardListingRow> findListingRowSlice(Specification<Card> spec, Pageable pageable) {
+        List<CardListingRow> rows = rowQuery(spec, pageable.getSort())
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    @Override
+    public List<CardListingRow> findListingRows(Specification<Card> spec, Sort sort, int limit) {
+        return rowQuery(spec, sort).setMaxResults(limit).getResultList();
+    }
+
+    private TypedQuery<CardListingRow> rowQuery(Specification<Card> spec, Sort sort) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CardListingRow> query = builder.createQuery(CardListingRow.class);
+        Root<Card> card = query.from(Card.class);
+        Join<Card, UserAccount> owner = card.join("owner");
+        query.select(builder.construct(
+                CardListingRow.class,
+                card.get("id"),
+                owner.get("id"),
+                owner.get("fullName"),
+                card.get("maskedNumber"),
+                card.get("status"),
+                card.get("expirationDate"),
+                card.get("balance"),
+                card.get("createdAt")));
+        query.where(spec.toPredicate(card, query, builder));
+        query.orderBy(QueryUtils.toOrders(sort, card, builder));
+        return entityManager.createQuery(query);
+    }
+
+    private long count(Specification<Card> spec) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        Root<Card> card = query.from(Card.class);
+        query.select(builder.count(card));
+        query.where(spec.toPredicate(card, query, builder));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardStatus;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A card as shown in listings, read together with its owner's name in a single statement.
+ */
+public record CardListingRow(
+        UUID id,
+        UUID ownerId,
+        String ownerFullName,
+        String maskedNumber,
+        CardStatus status,
+        LocalDate expirationDate,
+        BigDecimal balance,
+        LocalDateTime createdAt) {
+}
@@ -1,6 +1,9 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Card;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.domain.Page;
@@ -8,16 +11,107 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import jakarta.persistence.LockModeType;
 
-public interface CardRepository extends JpaRepository<Card, UUID>, JpaSpecificationExecutor<Card> {
+public interface CardRepository
+        extends JpaRepository<Card, UUID>, JpaSpecificationExecutor<Card>, CardListingRepository {
 
     Page<Card> findByOwnerId(UUID ownerId, Pageable pageable);
 
     Optional<Card> findByIdAndOwnerId(UUID id, UUID ownerId);
 
-    boolean existsByOwnerIdAndMaskedNumber(UUID ownerId, String maskedNumber);
+    boolean existsByIdAndOwnerId(UUID id, UUID ownerId);
+
+    boolean existsByPanFingerprint(String panFingerprint);
+
+    Optional<Card> findByPanFingerprint(String panFingerprint);
+
+    List<Card> findTop500ByPanFingerprintIsNullAndIdGreaterThanOrderByIdAsc(UUID id);
+
+    /**
+     * Serializes fingerprint backfill batches across application instances for the rest of the current transaction.
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('pan_fingerprint_backfill'))", nativeQuery = true)
+    boolean tryLockFingerprintBackfill();
+
+    /**
+     * Sets the fingerprint of a card that does not have one yet. Only the fingerprint column is written, so the
+     * backfill cannot overwrite concurrent changes to the card.
+     *
+     * @return the number of updated rows, {@code 0} if the card is gone or already has a fingerprint
+     */
+    @Modifying
+    @Query(value = "UPDATE cards SET pan_fingerprint = :fingerprint WHERE id = :id AND pan_fingerprint IS NULL",
+            nativeQuery = true)
+    int updatePanFingerprintIfAbsent(@Param("id") UUID id, @Param("fingerprint") String fingerprint);
 
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     Optional<Card> findWithLockingById(UUID id);
+
+    /**
+     * Locks all requested cards with a single {@code SELECT ... FOR UPDATE}. Rows are locked in ascending id
+     * order, so concurrent callers locking overlapping card sets always acquire the locks in the same order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Card> findWithLockingByIdInOrderByIdAsc(Collection<UUID> ids);
+
+    List<Card> findByIdInOrderByIdAsc(Collection<UUID> ids);
+
+    /**
+     * Debits an active, unexpired card of the owner if it holds at least {@code amount}.
+     *
+     * @return the number of updated rows, {@code 0} if any of the guards did not hold
+     */
+    @Modifying
+    @Query(value = "UPDATE cards SET balance = balance - :amount, version = version + 1, "
+            + "updated_at = LOCALTIMESTAMP "
+            + "WHERE id = :id AND owner_id = :ownerId AND balance >= :amount "
+            + "AND status = 'ACTIVE' AND expiration_date >= CURRENT_DATE", nativeQuery = true)
+    int debitIfAvailable(@Param("id") UUID id, @Param("ownerId") UUID ownerId, @Param("amount") BigDecimal amount);
+
+    /**
+     * Credits an active, unexpired card of the owner.
+     *
+     * @return the number of updated rows, {@code 0} if any of the guards did not hold
+     */
+    @Modifying
+    @Query(value = "UPDATE cards SET balance = balance + :amount, version = version + 1, "
+            + "updated_at = LOCALTIMESTAMP "
+            + "WHERE id = :id AND owner_id = :ownerId "
+            + "AND status = 'ACTIVE' AND expiration_date >= CURRENT_DATE", nativeQuery = true)
+    int creditIfActive(@Param("id") UUID id, @Param("ownerId") UUID ownerId, @Param("amount") BigDecimal amount);
+
+    /**
+     * Next chunk of card numbers not yet sealed under {@code keyVersion}, in id order after {@code afterId}. Cards
+     * still stored in the legacy Base64 columns are included whatever their key version.
+     */
+    @Query("select new com.example.bankcards.repository.CardCipherRef(c.id, c.sealedNumber, c.encryptedNumber, "
+            + "c.encryptionIv, c.keyVersion) from Card c "
+            + "where (c.keyVersion <> :keyVersion or c.sealedNumber is null) and c.id > :afterId order by c.id")
+    List<CardCipherRef> findCipherRefsToRewrite(
+            @Param("keyVersion") int keyVersion, @Param("afterId") UUID afterId, Pageable pageable);
+
+    @Query("select new com.example.bankcards.repository.KeyVersionCount(c.keyVersion, count(c)) "
+            + "from Card c group by c.keyVersion order by c.keyVersion")
+    List<KeyVersionCount> countByKeyVersion();
+
+    long countBySealedNumberIsNull();
+
+    /**
+     * Stores re-encrypted card numbers in one statement and clears their legacy Base64 columns. The arrays are
+     * paired by index. Balance, version and audit columns are left alone, so optimistic transfers are not forced to
+     * retry. Entities loaded before the rewrite keep their version and can still be flushed; {@link Card} is updated
+     * dynamically, so such a flush only writes the columns it changed and leaves the new ciphertext in place.
+     */
+    @Modifying
+    @Query(value = "UPDATE cards c SET card_number_sealed = v.sealed, card_number_encrypted = NULL, "
+            + "card_number_iv = NULL, key_version = :keyVersion "
+            + "FROM unnest(:ids, :sealed) AS v(id, sealed) "
+            + "WHERE c.id = v.id AND (c.key_version <> :keyVersion OR c.card_number_sealed IS NULL)",
+            nativeQuery = true)
+    int updateSealedNumbers(
+            @Param("ids") UUID[] ids, @Param("sealed") byte[][] sealed, @Param("keyVersion") int keyVersion);
 }
@@ -3,15 +3,21 @@ package com.example.bankcards.repository;
 import com.example.bankcards.dto.card.CardFilterRequest;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.util.CardKeysetCursor;
 import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.Predicate;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
 import org.springframework.data.jpa.domain.Specification;
 
 public final class CardSpecifications {
 
+    private static final Pattern LAST_FOUR = Pattern.compile("\\d{4}");
+
     private CardSpecifications() {
     }
 
@@ -28,8 +34,12 @@ public final class CardSpecifications {
                 predicates.add(builder.equal(root.get("status"), filter.getStatus()));
             }
             if (filter.hasMaskedNumberFilter()) {
-                String likePattern = "%" + filter.getMaskedNumber().replace("*", "%").toLowerCase() + "%";
-                predicates.add(builder.like(builder.lower(root.get("maskedNumber")), likePattern));
+                String digits = visibleDigits(filter.getMaskedNumber());
+                if (LAST_FOUR.matcher(digits).matches()) {
+                    predicates.add(builder.equal(root.get("last4"), digits));
+                } else if (!digits.isEmpty()) {
+                    predicates.add(builder.like(root.get("last4"), "%" + digits.replace("*", "%") + "%"));
+                }
             }
             if (filter.hasMinBalanceFilter()) {
                 predicates.add(builder.greaterThanOrEqualTo(root.get("balance"), filter.getMinBalance()));
@@ -41,6 +51,52 @@ public final class CardSpecifications {
         };
     }
 
+    /**
+     * Strips whitespace and the leading mask from a masked number filter. Every masked number starts with the same
+     * {@code "**** **** **** "} prefix, so only what follows it narrows the search.
+     */
+    public static String visibleDigits(String maskedNumber) {
+        String compact = maskedNumber.replaceAll("\\s+", "");
+        int start = 0;
+        while (start < compact.length() && compact.charAt(start) == '*') {
+            start++;
+        }
+        return compact.substring(start);
+    }
+
+    /**
+     * Cards strictly after {@code cursor} in its {@code (sortKey, id)} order; every card when it is {@code null}.
+     * The redundant bound on the sort key alone lets the database start an index range scan at the cursor instead
+     * of filtering every row before it.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public static Specification<Card> after(CardKeysetCursor cursor) {
+        return (root, query, builder) -> {
+            if (cursor == null) {
+                return builder.conjunction();
+            }
+            Expression<Comparable> key = root.get(cursor.sortKey().property());
+            Comparable value = cursor.value();
+            Expression<UUID> id = root.get("id");
+            if (cursor.direction().isAscending()) {
+                return builder.and(
+                        builder.greaterThanOrEqualTo(key, value),
+                        builder.or(
+                                builder.greaterThan(key, value),
+                                builder.greaterThan(id, cursor.id())));
+            }
+            return builder.and(
+                    builder.lessThanOrEqualTo(key, value),
+                    builder.or(
+                            builder.lessThan(key, value),
+                            builder.lessThan(id, cursor.id())));
+        };
+    }
+
+    public static Specification<Card> hasId(UUID id) {
+        return (root, query, builder) -> builder.equal(root.get("id"), id);
+    }
+
     public static Specification<Card> withStatuses(List<CardStatus> statuses) {
         return (root, query, builder) -> {
             if (statuses == null || statuses.isEmpty()) {
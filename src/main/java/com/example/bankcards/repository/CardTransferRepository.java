@@ -1,12 +1,111 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.transfer.TransferResponse;
 import com.example.bankcards.entity.CardTransfer;
+import com.example.bankcards.entity.TransferStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 public interface CardTransferRepository extends JpaRepository<CardTransfer, UUID> {
 
-    Page<CardTransfer> findBySourceCardOwnerIdOrTargetCardOwnerId(UUID sourceOwnerId, UUID targetOwnerId, Pageable pageable);
+    String HISTORY_ORDER = " ORDER BY t.created_at DESC, t.id DESC LIMIT :limit";
+    String OWNER_CARDS = "SELECT t.* FROM cards c CROSS JOIN LATERAL (SELECT * FROM card_transfers t WHERE ";
+    String SENT_BY_CARD = "t.source_card_id = c.id";
+    String RECEIVED_BY_CARD = "t.target_card_id = c.id";
+    String OWNED_BY = ") t WHERE c.owner_id = :ownerId";
+    String AFTER_CURSOR = " AND (t.created_at, t.id) < (:createdAt, :id)";
+    String SENT_BRANCH = OWNER_CARDS + SENT_BY_CARD + HISTORY_ORDER + OWNED_BY;
+    String RECEIVED_BRANCH = OWNER_CARDS + RECEIVED_BY_CARD + HISTORY_ORDER + OWNED_BY;
+    String SENT_AFTER_CURSOR_BRANCH = OWNER_CARDS + SENT_BY_CARD + AFTER_CURSOR + HISTORY_ORDER + OWNED_BY;
+    String RECEIVED_AFTER_CURSOR_BRANCH = OWNER_CARDS + RECEIVED_BY_CARD + AFTER_CURSOR + HISTORY_ORDER + OWNED_BY;
+
+    /**
+     * Page of the owner's sent and received transfers, built as {@link TransferResponse} rows directly in the
+     * query so that no entities or card proxies are materialized.
+     */
+    @Query(value = "select new com.example.bankcards.dto.transfer.TransferResponse(t.id, s.id, d.id, t.amount, "
+            + "t.status, t.description, t.createdAt, t.failureReason) "
+            + "from CardTransfer t join t.sourceCard s join t.targetCard d "
+            + "where s.owner.id = :ownerId or d.owner.id = :ownerId",
+            countQuery = "select count(t) from CardTransfer t join t.sourceCard s join t.targetCard d "
+                    + "where s.owner.id = :ownerId or d.owner.id = :ownerId")
+    Page<TransferResponse> findResponsesByOwnerId(@Param("ownerId") UUID ownerId, Pageable pageable);
+
+    /**
+     * Same rows as {@link #findResponsesByOwnerId}, without the count query.
+     */
+    @Query("select new com.example.bankcards.dto.transfer.TransferResponse(t.id, s.id, d.id, t.amount, "
+            + "t.status, t.description, t.createdAt, t.failureReason) "
+            + "from CardTransfer t join t.sourceCard s join t.targetCard d "
+            + "where s.owner.id = :ownerId or d.owner.id = :ownerId")
+    Slice<TransferResponse> findResponseSliceByOwnerId(@Param("ownerId") UUID ownerId, Pageable pageable);
+
+    @Query("select count(t) from CardTransfer t join t.sourceCard s join t.targetCard d "
+            + "where s.owner.id = :ownerId or d.owner.id = :ownerId")
+    long countByOwnerId(@Param("ownerId") UUID ownerId);
+
+    /**
+     * First page of the owner's transfer history, newest first. Each of the owner's cards is probed separately
+     * for its newest sent and received transfers through the {@code (card, created_at, id)} indexes, every probe
+     * stopping after {@code limit} rows, so a page reads at most {@code 2 * cards * limit} transfers however long
+     * the history is. {@code UNION} removes the duplicates produced by transfers between the owner's own cards.
+     */
+    @Query(value = "SELECT t.* FROM ((" + SENT_BRANCH + ") UNION (" + RECEIVED_BRANCH + ")) t" + HISTORY_ORDER,
+            nativeQuery = true)
+    List<CardTransfer> findHistory(@Param("ownerId") UUID ownerId, @Param("limit") int limit);
+
+    /**
+     * Next page of the owner's transfer history, starting strictly after the given {@code (createdAt, id)}
+     * position. Read the same way as {@link #findHistory}, with every probe starting at the cursor.
+     */
+    @Query(value = "SELECT t.* FROM ((" + SENT_AFTER_CURSOR_BRANCH + ") UNION (" + RECEIVED_AFTER_CURSOR_BRANCH
+            + ")) t" + HISTORY_ORDER, nativeQuery = true)
+    List<CardTransfer> findHistoryAfter(
+            @Param("ownerId") UUID ownerId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") UUID id,
+            @Param("limit") int limit);
+
+    /**
+     * All of the owner's transfers, oldest first, for export. Rows are built as {@link TransferResponse} so the
+     * persistence context stays empty, and are fetched from a server-side cursor in chunks of the hinted fetch
+     * size; the stream must be consumed and closed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new com.example.bankcards.dto.transfer.TransferResponse(t.id, s.id, d.id, t.amount, "
+            + "t.status, t.description, t.createdAt, t.failureReason) "
+            + "from CardTransfer t join t.sourceCard s join t.targetCard d "
+            + "where s.owner.id = :ownerId or d.owner.id = :ownerId order by t.createdAt, t.id")
+    Stream<TransferResponse> streamResponsesByOwnerId(@Param("ownerId") UUID ownerId);
+
+    Optional<CardTransfer> findByIdAndSourceCardOwnerId(UUID id, UUID ownerId);
+
+    @Query("select new com.example.bankcards.repository.PendingTransferRef(t.id, t.sourceCard.id) "
+            + "from CardTransfer t where t.status = :status order by t.createdAt")
+    List<PendingTransferRef> findRefsByStatus(@Param("status") TransferStatus status, Pageable pageable);
+
+    /**
+     * Locks the given transfers that are still in the requested status. Rows already locked by another
+     * settlement worker are skipped instead of waited for.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select t from CardTransfer t where t.id in :ids and t.status = :status order by t.createdAt")
+    List<CardTransfer> findForSettlement(
+            @Param("ids") Collection<UUID> ids, @Param("status") TransferStatus status);
 }
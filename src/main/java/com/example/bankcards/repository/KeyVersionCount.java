@@ -0,0 +1,4 @@
+package com.example.bankcards.repository;
+
+public record KeyVersionCount(int keyVersion, long cards) {
+}
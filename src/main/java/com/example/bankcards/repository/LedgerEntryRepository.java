@@ -0,0 +1,85 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.LedgerEntry;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    /**
+     * Id of the appending transaction, read in a materialized CTE so that the transaction holds an id before
+     * {@code ledger_entry_seq} hands out the sequence numbers of the appended entries.
+     */
+    String APPEND_XID = "WITH tx AS MATERIALIZED (SELECT pg_current_xact_id() AS xid) ";
+
+    /**
+     * Appends the debit and the credit leg of a transfer in one statement. Pending changes are flushed first so
+     * that the transfer row referenced by both legs exists.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = APPEND_XID
+            + "INSERT INTO ledger_entries (card_id, transfer_id, entry_type, amount, created_at, append_xid) "
+            + "SELECT v.card_id, CAST(:transferId AS uuid), v.entry_type, v.amount, CAST(:createdAt AS timestamp), "
+            + "tx.xid FROM tx CROSS JOIN (VALUES "
+            + "(CAST(:sourceCardId AS uuid), 'DEBIT', -CAST(:amount AS numeric)), "
+            + "(CAST(:targetCardId AS uuid), 'CREDIT', CAST(:amount AS numeric))) AS v(card_id, entry_type, amount)",
+            nativeQuery = true)
+    int appendTransfer(
+            @Param("transferId") UUID transferId,
+            @Param("sourceCardId") UUID sourceCardId,
+            @Param("targetCardId") UUID targetCardId,
+            @Param("amount") BigDecimal amount,
+            @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = APPEND_XID
+            + "INSERT INTO ledger_entries (card_id, entry_type, amount, created_at, append_xid) "
+            + "SELECT CAST(:cardId AS uuid), 'OPENING', CAST(:amount AS numeric), CAST(:createdAt AS timestamp), "
+            + "tx.xid FROM tx", nativeQuery = true)
+    int appendOpening(
+            @Param("cardId") UUID cardId,
+            @Param("amount") BigDecimal amount,
+            @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Last sequence number handed out by {@code ledger_entry_seq}, committed or not, or {@code null} if none was.
+     */
+    @Query(value = "SELECT pg_sequence_last_value('ledger_entry_seq')", nativeQuery = true)
+    Long findLastAllocatedSequence();
+
+    /**
+     * First transaction id not yet assigned when the statement started. Every transaction that holds an id
+     * by then has a lower one.
+     */
+    @Query(value = "SELECT CAST(CAST(pg_snapshot_xmax(pg_current_snapshot()) AS text) AS bigint)", nativeQuery = true)
+    long findNextXid();
+
+    /**
+     * Oldest transaction id still running when the statement started; every transaction with a lower id has
+     * committed or rolled back.
+     */
+    @Query(value = "SELECT CAST(CAST(pg_snapshot_xmin(pg_current_snapshot()) AS text) AS bigint)", nativeQuery = true)
+    long findOldestRunningXid();
+
+    /**
+     * Highest sequence {@code s} above {@code afterSequence} such that every visible entry in
+     * {@code (afterSequence, s]} was created before {@code cutoff}, or {@code null} if there is none.
+     */
+    @Query(value = "SELECT COALESCE("
+            + "(SELECT MIN(sequence) - 1 FROM ledger_entries WHERE sequence > :afterSequence AND created_at >= :cutoff), "
+            + "(SELECT MAX(sequence) FROM ledger_entries WHERE sequence > :afterSequence))", nativeQuery = true)
+    Long findSettledSequence(
+            @Param("afterSequence") long afterSequence, @Param("cutoff") LocalDateTime cutoff);
+
+    @Query(value = "SELECT COALESCE(SUM(amount), 0) FROM ledger_entries WHERE card_id = :cardId "
+            + "AND sequence > :afterSequence AND created_at <= :at", nativeQuery = true)
+    BigDecimal sumAfter(
+            @Param("cardId") UUID cardId,
+            @Param("afterSequence") long afterSequence,
+            @Param("at") LocalDateTime at);
+}
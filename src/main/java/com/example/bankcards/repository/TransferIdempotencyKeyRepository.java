@@ -0,0 +1,13 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.TransferIdempotencyKey;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface TransferIdempotencyKeyRepository extends JpaRepository<TransferIdempotencyKey, UUID> {
+
+    @EntityGraph(attributePaths = "transfer")
+    Optional<TransferIdempotencyKey> findByUserIdAndIdempotencyKey(UUID userId, String idempotencyKey);
+}
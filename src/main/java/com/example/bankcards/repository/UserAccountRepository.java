@@ -1,11 +1,18 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.UserAccount;
+import com.example.bankcards.security.UserSecurityVersion;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface UserAccountRepository extends JpaRepository<UserAccount, UUID> {
 
@@ -17,4 +24,44 @@ public interface UserAccountRepository extends JpaRepository<UserAccount, UUID>
             String username,
             String fullName,
             Pageable pageable);
+
+    Slice<UserAccount> findSliceByUsernameContainingIgnoreCaseOrFullNameContainingIgnoreCase(
+            String username,
+            String fullName,
+            Pageable pageable);
+
+    long countByUsernameContainingIgnoreCaseOrFullNameContainingIgnoreCase(String username, String fullName);
+
+    Slice<UserAccount> findSliceBy(Pageable pageable);
+
+    @Query("select new com.example.bankcards.security.UserSecurityVersion(u.id, u.securityVersion) "
+            + "from UserAccount u where u.securityVersion > 0")
+    List<UserSecurityVersion> findChangedSecurityVersions();
+
+    @Query("select new com.example.bankcards.security.UserSecurityVersion(u.id, u.securityVersion) "
+            + "from UserAccount u where u.securityVersion > 0 and u.updatedAt >= :since")
+    List<UserSecurityVersion> findChangedSecurityVersionsSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Leaves a tombstone for a user about to be deleted, so that other instances, and this one after a restart,
+     * still revoke the principals embedded in the user's unexpired tokens.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO deleted_users (user_id, deleted_at) VALUES (:userId, :deletedAt) "
+            + "ON CONFLICT (user_id) DO NOTHING", nativeQuery = true)
+    int insertDeletedUser(@Param("userId") UUID userId, @Param("deletedAt") LocalDateTime deletedAt);
+
+    @Query(value = "SELECT user_id FROM deleted_users WHERE deleted_at >= :since", nativeQuery = true)
+    List<UUID> findDeletedUserIdsSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Sets {@code last_login_at} for many users in one statement, never moving a timestamp backwards. The arrays
+     * are paired by index.
+     */
+    @Modifying
+    @Query(value = "UPDATE users u SET last_login_at = v.last_login_at "
+            + "FROM unnest(:userIds, :loggedInAt) AS v(id, last_login_at) "
+            + "WHERE u.id = v.id AND (u.last_login_at IS NULL OR u.last_login_at < v.last_login_at)",
+            nativeQuery = true)
+    int updateLastLoginAt(@Param("userIds") UUID[] userIds, @Param("loggedInAt") LocalDateTime[] loggedInAt);
 }
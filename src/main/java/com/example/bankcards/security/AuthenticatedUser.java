@@ -17,17 +17,30 @@ public class AuthenticatedUser implements UserDetails {
     private final String password;
     private final boolean enabled;
     private final Set<Role> roles;
+    private final long securityVersion;
 
     public AuthenticatedUser(UUID id, String username, String password, boolean enabled, Set<Role> roles) {
+        this(id, username, password, enabled, roles, 0L);
+    }
+
+    public AuthenticatedUser(
+            UUID id, String username, String password, boolean enabled, Set<Role> roles, long securityVersion) {
         this.id = id;
         this.username = username;
         this.password = password;
         this.enabled = enabled;
         this.roles = roles;
+        this.securityVersion = securityVersion;
     }
 
     public static AuthenticatedUser from(UserAccount user) {
-        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getPasswordHash(), user.isEnabled(), user.getRoles());
+        return new AuthenticatedUser(
+                user.getId(),
+                user.getUsername(),
+                user.getPasswordHash(),
+                user.isEnabled(),
+                user.getRoles(),
+                user.getSecurityVersion());
     }
 
     public UUID id() {
@@ -42,6 +55,10 @@ public class AuthenticatedUser implements UserDetails {
         return roles;
     }
 
+    public long securityVersion() {
+        return securityVersion;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return roles.stream()
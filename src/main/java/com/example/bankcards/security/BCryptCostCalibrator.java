@@ -0,0 +1,50 @@
+package com.example.bankcards.security;
+
+import java.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Picks the highest BCrypt cost whose hash time on the current host stays within a target latency. Each cost step
+ * doubles the work, so the search stops at the first cost that is too slow.
+ */
+public final class BCryptCostCalibrator {
+
+    private static final Logger log = LoggerFactory.getLogger(BCryptCostCalibrator.class);
+
+    private static final String SAMPLE_PASSWORD = "calibration-sample-password";
+    private static final int SAMPLES = 2;
+
+    private BCryptCostCalibrator() {
+    }
+
+    /**
+     * Returns a cost within {@code [minCost, maxCost]}. {@code minCost} is returned even when it misses the
+     * target, so calibration never weakens hashing below the configured floor.
+     */
+    public static int calibrate(Duration targetLatency, int minCost, int maxCost) {
+        new BCryptPasswordEncoder(minCost).encode(SAMPLE_PASSWORD);
+        int chosen = minCost;
+        for (int cost = minCost; cost <= maxCost; cost++) {
+            Duration elapsed = measure(cost);
+            if (elapsed.compareTo(targetLatency) > 0) {
+                break;
+            }
+            chosen = cost;
+        }
+        log.info("Calibrated BCrypt cost {} for a target hash latency of {} ms", chosen, targetLatency.toMillis());
+        return chosen;
+    }
+
+    private static Duration measure(int cost) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(cost);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return Duration.ofNanos(best);
+    }
+}
@@ -1,23 +1,83 @@
 package com.example.bankcards.security;
 
+import com.example.bankcards.config.AppProperties;
 import com.example.bankcards.repository.UserAccountRepository;
-import lombok.RequiredArgsConstructor;
+import com.example.bankcards.service.UserService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+/**
+ * Loads principals by username, keeping recently used ones in a bounded cache.
+ *
+ * <p>Entries are loaded through {@link Cache#get}, which computes atomically per key: an invalidation that arrives
+ * while a load is in flight waits for it and then removes the result, so a principal read before a commit can
+ * never be stored after that commit's invalidation.
+ */
 @Service
-@RequiredArgsConstructor
-public class BankUserDetailsService implements UserDetailsService {
+public class BankUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+
+    static final String CACHE_NAME = "bankcards.user-details";
 
     private final UserAccountRepository userRepository;
+    private final UserService userService;
+    private final Cache<String, AuthenticatedUser> principals;
+
+    public BankUserDetailsService(
+            UserAccountRepository userRepository,
+            UserService userService,
+            AppProperties properties,
+            MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.userService = userService;
+        AppProperties.UserDetailsCache cache = properties.getUserDetailsCache();
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(cache.getMaximumSize())
+                .expireAfterWrite(cache.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principals, CACHE_NAME);
+    }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository
-                .findByUsername(username)
+        AuthenticatedUser user = principals.get(username, key -> userRepository
+                .findByUsername(key)
                 .map(AuthenticatedUser::from)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+                .orElse(null));
+        if (user == null) {
+            throw new UsernameNotFoundException("User not found");
+        }
+        return user;
+    }
+
+    /**
+     * Stores a password hash re-encoded with the current cost after a successful sign-in. The security version is
+     * left alone, since the password itself did not change.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        AuthenticatedUser principal = (AuthenticatedUser) user;
+        userService.updatePasswordHash(principal.id(), newPassword);
+        return new AuthenticatedUser(
+                principal.id(),
+                principal.getUsername(),
+                newPassword,
+                principal.isEnabled(),
+                principal.roles(),
+                principal.securityVersion());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onUserAccountChanged(UserAccountChanged change) {
+        principals.invalidate(change.username());
     }
 }
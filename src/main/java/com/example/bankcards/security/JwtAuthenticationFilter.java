@@ -1,10 +1,12 @@
 package com.example.bankcards.security;
 
+import com.example.bankcards.config.AppProperties;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -21,10 +23,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final BankUserDetailsService userDetailsService;
+    private final SecurityVersionRegistry securityVersions;
+    private final boolean statelessPrincipal;
 
-    public JwtAuthenticationFilter(JwtService jwtService, BankUserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(
+            JwtService jwtService,
+            BankUserDetailsService userDetailsService,
+            SecurityVersionRegistry securityVersions,
+            AppProperties properties) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.securityVersions = securityVersions;
+        this.statelessPrincipal = properties.getJwt().getStatelessPrincipal().isEnabled();
     }
 
     @Override
@@ -38,11 +48,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         String jwt = authHeader.substring(7);
         try {
-            String username = jwtService.extractUsername(jwt);
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                if (userDetails instanceof AuthenticatedUser authenticatedUser
-                        && jwtService.isTokenValid(jwt, authenticatedUser)) {
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                AuthenticatedUser authenticatedUser = resolvePrincipal(jwt);
+                if (authenticatedUser != null) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             authenticatedUser, null, authenticatedUser.getAuthorities());
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -55,4 +63,29 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * In stateless mode a token whose embedded security version is still current is trusted as is. Older tokens,
+     * and every token otherwise, are resolved against the database so that they see the account's current state.
+     */
+    private AuthenticatedUser resolvePrincipal(String jwt) {
+        if (statelessPrincipal) {
+            Optional<AuthenticatedUser> embedded = jwtService.extractStatelessPrincipal(jwt)
+                    .filter(user -> securityVersions.isCurrent(user.id(), user.securityVersion()));
+            if (embedded.isPresent()) {
+                return embedded.get();
+            }
+        }
+        String username = jwtService.extractUsername(jwt);
+        if (username == null) {
+            return null;
+        }
+        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        if (userDetails instanceof AuthenticatedUser authenticatedUser
+                && authenticatedUser.isEnabled()
+                && jwtService.isTokenValid(jwt, authenticatedUser)) {
+            return authenticatedUser;
+        }
+        return null;
+    }
 }
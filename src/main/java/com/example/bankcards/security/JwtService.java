@@ -1,16 +1,30 @@
 package com.example.bankcards.security;
 
 import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.entity.Role;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -19,9 +33,19 @@ public class JwtService {
     private static final String TOKEN_TYPE_CLAIM = "token_type";
     private static final String ACCESS_TOKEN = "access";
     private static final String REFRESH_TOKEN = "refresh";
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String ROLES_CLAIM = "roles";
+    private static final String SECURITY_VERSION_CLAIM = "sv";
 
     private final AppProperties properties;
     private final Key signingKey;
+    private final JwtParser parser;
+
+    /**
+     * Claims of tokens whose signature has already been verified, keyed by the SHA-256 digest of the token. An
+     * entry expires together with its token, so a hit never returns claims of an expired token.
+     */
+    private final Cache<ByteBuffer, Claims> verifiedClaims;
 
     public JwtService(AppProperties properties) {
         this.properties = properties;
@@ -30,6 +54,11 @@ public class JwtService {
             throw new IllegalStateException("JWT secret must be at least 32 bytes long");
         }
         this.signingKey = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.verifiedClaims = Caffeine.newBuilder()
+                .maximumSize(properties.getJwt().getVerifiedCacheMaximumSize())
+                .expireAfter(new UntilTokenExpiry())
+                .build();
     }
 
     public String generateAccessToken(AuthenticatedUser user) {
@@ -61,12 +90,39 @@ public class JwtService {
         return isTokenExpired(extractAllClaims(token));
     }
 
+    /**
+     * Rebuilds the principal of an access token from its claims alone. Returns empty for refresh tokens, expired
+     * tokens and tokens issued before the principal claims were embedded, which callers resolve from the database.
+     */
+    public Optional<AuthenticatedUser> extractStatelessPrincipal(String token) {
+        Claims claims = extractAllClaims(token);
+        if (!ACCESS_TOKEN.equals(claims.get(TOKEN_TYPE_CLAIM, String.class)) || isTokenExpired(claims)) {
+            return Optional.empty();
+        }
+        String userId = claims.get(USER_ID_CLAIM, String.class);
+        List<?> roleNames = claims.get(ROLES_CLAIM, List.class);
+        Long securityVersion = claims.get(SECURITY_VERSION_CLAIM, Long.class);
+        if (userId == null || roleNames == null || securityVersion == null) {
+            return Optional.empty();
+        }
+        Set<Role> roles = EnumSet.noneOf(Role.class);
+        for (Object roleName : roleNames) {
+            roles.add(Role.valueOf(roleName.toString()));
+        }
+        return Optional.of(new AuthenticatedUser(
+                UUID.fromString(userId), claims.getSubject(), null, true, roles, securityVersion));
+    }
+
     private String buildToken(
             AuthenticatedUser user, String tokenType, long amountToAdd, ChronoUnit unit) {
         Instant now = Instant.now();
         Instant expiry = now.plus(amountToAdd, unit);
         return Jwts.builder()
-                .setClaims(Map.of(TOKEN_TYPE_CLAIM, tokenType))
+                .setClaims(Map.of(
+                        TOKEN_TYPE_CLAIM, tokenType,
+                        USER_ID_CLAIM, user.id().toString(),
+                        ROLES_CLAIM, user.roles().stream().map(Role::name).sorted().toList(),
+                        SECURITY_VERSION_CLAIM, user.securityVersion()))
                 .setSubject(user.getUsername())
                 .setId(user.id().toString())
                 .setIssuer(properties.getJwt().getIssuer())
@@ -81,10 +137,41 @@ public class JwtService {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(signingKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        ByteBuffer key = digest(token);
+        Claims cached = verifiedClaims.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        verifiedClaims.put(key, claims);
+        return claims;
+    }
+
+    private static ByteBuffer digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return ByteBuffer.wrap(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    private static final class UntilTokenExpiry implements Expiry<ByteBuffer, Claims> {
+
+        @Override
+        public long expireAfterCreate(ByteBuffer key, Claims claims, long currentTime) {
+            long remainingMillis = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
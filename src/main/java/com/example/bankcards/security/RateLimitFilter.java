@@ -0,0 +1,129 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.dto.common.ApiError;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+/**
+ * Applies the token buckets configured under {@code app.rate-limit.routes}. Runs after
+ * {@link JwtAuthenticationFilter}, so per-user routes can key on the authenticated principal. A request that
+ * finds its bucket empty is answered with {@code 429} and a {@code Retry-After} header.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    static final String REQUESTS_METRIC = "bankcards.ratelimit.requests";
+
+    private final ObjectMapper objectMapper;
+    private final List<Route> routes;
+
+    public RateLimitFilter(AppProperties properties, MeterRegistry meterRegistry, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        AppProperties.RateLimit rateLimit = properties.getRateLimit();
+        this.routes = rateLimit.isEnabled()
+                ? rateLimit.getRoutes().entrySet().stream()
+                        .map(entry -> Route.of(entry.getKey(), entry.getValue(), meterRegistry))
+                        .toList()
+                : List.of();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return routes.isEmpty();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI());
+        for (Route route : routes) {
+            if (!route.matches(request.getMethod(), path)) {
+                continue;
+            }
+            long waitNanos = route.limiter().tryAcquire(clientKey(route.keyType(), request));
+            if (waitNanos > 0) {
+                route.rejected().increment();
+                reject(request, response, waitNanos);
+                return;
+            }
+            route.allowed().increment();
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-interval}")
+    public void evictIdleBuckets() {
+        routes.forEach(route -> route.limiter().evictIdle());
+    }
+
+    private static String clientKey(RateLimitKey keyType, HttpServletRequest request) {
+        if (keyType == RateLimitKey.USER) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+                return user.id().toString();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, (TimeUnit.NANOSECONDS.toMillis(waitNanos) + 999) / 1000);
+        HttpStatus status = HttpStatus.TOO_MANY_REQUESTS;
+        ApiError error = new ApiError(
+                Instant.now(),
+                status.value(),
+                status.getReasonPhrase(),
+                "Too many requests, please retry later",
+                request.getRequestURI(),
+                null);
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+
+    private record Route(
+            PathPattern pattern,
+            String method,
+            RateLimitKey keyType,
+            TokenBucketLimiter limiter,
+            Counter allowed,
+            Counter rejected) {
+
+        static Route of(
+                String name, AppProperties.RateLimitRoute route, MeterRegistry meterRegistry) {
+            return new Route(
+                    PathPatternParser.defaultInstance.parse(route.getPath()),
+                    route.getMethod(),
+                    route.getKey(),
+                    new TokenBucketLimiter(route.getCapacity(), route.getRefillPeriod()),
+                    meterRegistry.counter(REQUESTS_METRIC, "route", name, "outcome", "allowed"),
+                    meterRegistry.counter(REQUESTS_METRIC, "route", name, "outcome", "rejected"));
+        }
+
+        boolean matches(String requestMethod, PathContainer path) {
+            return (method == null || method.equalsIgnoreCase(requestMethod)) && pattern.matches(path);
+        }
+    }
+}
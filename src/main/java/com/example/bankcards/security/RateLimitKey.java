@@ -0,0 +1,11 @@
+package com.example.bankcards.security;
+
+/**
+ * What a rate limited route counts requests by.
+ */
+public enum RateLimitKey {
+    /** Remote address of the request. */
+    IP,
+    /** Authenticated user, falling back to the remote address for anonymous requests. */
+    USER
+}
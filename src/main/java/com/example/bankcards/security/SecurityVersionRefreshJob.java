@@ -0,0 +1,48 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.AppProperties;
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps {@link SecurityVersionRegistry} in step with the database while stateless principals are enabled: a full
+ * load before the first request and a periodic pick-up of accounts changed on other instances.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.jwt.stateless-principal", name = "enabled", havingValue = "true")
+public class SecurityVersionRefreshJob {
+
+    private static final Logger log = LoggerFactory.getLogger(SecurityVersionRefreshJob.class);
+
+    private final SecurityVersionRegistry registry;
+    private final AppProperties properties;
+
+    private LocalDateTime lastRefreshStartedAt;
+
+    @PostConstruct
+    void load() {
+        lastRefreshStartedAt = LocalDateTime.now();
+        registry.reload();
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.stateless-principal.refresh-interval}")
+    public void refresh() {
+        // Overlap the previous window so that rows committed after their updated_at was stamped are not missed.
+        LocalDateTime startedAt = LocalDateTime.now();
+        LocalDateTime since = lastRefreshStartedAt.minus(
+                properties.getJwt().getStatelessPrincipal().getRefreshInterval());
+        try {
+            registry.refreshSince(since);
+            lastRefreshStartedAt = startedAt;
+        } catch (RuntimeException ex) {
+            log.warn("Failed to refresh user security versions, will retry on the next run", ex);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.repository.UserAccountRepository;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * In-memory table of the current security version of every user whose account changed since it was created.
+ * A principal embedded in a token is trusted only while its version is not older than the one recorded here;
+ * users that never changed are absent and implicitly at version {@code 0}.
+ *
+ * <p>Changes made on this instance are applied as soon as their transaction commits. Changes made on other
+ * instances arrive through {@link #refreshSince}. Deleted users are read from their {@code deleted_users}
+ * tombstones; {@link #reload} only needs those recent enough for an access token issued before the deletion to
+ * still be valid.
+ */
+@Component
+@RequiredArgsConstructor
+public class SecurityVersionRegistry {
+
+    private final UserAccountRepository userRepository;
+    private final AppProperties properties;
+    private final Map<UUID, Long> versions = new ConcurrentHashMap<>();
+
+    public boolean isCurrent(UUID userId, long securityVersion) {
+        return securityVersion >= versions.getOrDefault(userId, 0L);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onSecurityVersionChanged(UserSecurityVersion change) {
+        record(change);
+    }
+
+    public void reload() {
+        userRepository.findChangedSecurityVersions().forEach(this::record);
+        recordDeletedSince(LocalDateTime.now().minusMinutes(properties.getJwt().getAccessTokenExpirationMinutes()));
+    }
+
+    public void refreshSince(LocalDateTime since) {
+        userRepository.findChangedSecurityVersionsSince(since).forEach(this::record);
+        recordDeletedSince(since);
+    }
+
+    private void recordDeletedSince(LocalDateTime since) {
+        userRepository.findDeletedUserIdsSince(since).forEach(userId -> record(UserSecurityVersion.deleted(userId)));
+    }
+
+    private void record(UserSecurityVersion change) {
+        versions.merge(change.userId(), change.securityVersion(), Math::max);
+    }
+}
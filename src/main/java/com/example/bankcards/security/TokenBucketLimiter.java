@@ -0,0 +1,68 @@
+package com.example.bankcards.security;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets keyed by client, kept as a single {@link AtomicLong} each: the generic cell rate algorithm stores
+ * the time at which the bucket will be full again, so taking a token is one compare-and-set without locks.
+ *
+ * <p>A bucket whose refill time has passed is indistinguishable from a new one, so {@link #evictIdle()} can drop
+ * it without losing state. A request racing with the eviction of its own bucket may be granted one extra token.
+ */
+public class TokenBucketLimiter {
+
+    private final long refillNanos;
+    private final long burstNanos;
+    private final LongSupplier clock;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    public TokenBucketLimiter(int capacity, Duration refillPeriod) {
+        this(capacity, refillPeriod, System::nanoTime);
+    }
+
+    TokenBucketLimiter(int capacity, Duration refillPeriod, LongSupplier clock) {
+        this.refillNanos = refillPeriod.toNanos();
+        this.burstNanos = refillNanos * capacity;
+        this.clock = clock;
+    }
+
+    /**
+     * Takes a token from the client's bucket.
+     *
+     * @return {@code 0} if a token was taken, otherwise the nanoseconds until the next one becomes available
+     */
+    public long tryAcquire(String key) {
+        AtomicLong fullAt = buckets.get(key);
+        if (fullAt == null) {
+            fullAt = buckets.computeIfAbsent(key, k -> new AtomicLong(Long.MIN_VALUE));
+        }
+        long now = clock.getAsLong();
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + refillNanos;
+            long overdraft = next - now - burstNanos;
+            if (overdraft > 0) {
+                return overdraft;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Removes the buckets that have refilled completely.
+     */
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        buckets.values().removeIf(fullAt -> fullAt.get() - now <= 0);
+    }
+
+    int size() {
+        return buckets.size();
+    }
+}
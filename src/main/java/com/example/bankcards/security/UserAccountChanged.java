@@ -0,0 +1,10 @@
+package com.example.bankcards.security;
+
+import java.util.UUID;
+
+/**
+ * Published whenever a user account row is written, so that copies of the account held outside the persistence
+ * context can be dropped once the change commits.
+ */
+public record UserAccountChanged(UUID userId, String username) {
+}
@@ -0,0 +1,16 @@
+package com.example.bankcards.security;
+
+import java.util.UUID;
+
+/**
+ * Security version of a user account. Every change that must invalidate principals embedded in already issued
+ * tokens (disabling the account, changing its roles or password, deleting it) moves the version forward.
+ */
+public record UserSecurityVersion(UUID userId, long securityVersion) {
+
+    private static final long DELETED = Long.MAX_VALUE;
+
+    public static UserSecurityVersion deleted(UUID userId) {
+        return new UserSecurityVersion(userId, DELETED);
+    }
+}
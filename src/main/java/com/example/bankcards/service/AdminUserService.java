@@ -1,5 +1,6 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.common.CountMode;
 import com.example.bankcards.dto.common.PageResponse;
 import com.example.bankcards.dto.user.UserCreateRequest;
 import com.example.bankcards.dto.user.UserResponse;
@@ -9,11 +10,14 @@ import com.example.bankcards.entity.UserAccount;
 import com.example.bankcards.exception.BusinessException;
 import com.example.bankcards.mapper.UserMapper;
 import com.example.bankcards.repository.UserAccountRepository;
+import com.example.bankcards.security.UserSecurityVersion;
+import java.time.LocalDateTime;
 import java.util.EnumSet;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -27,28 +31,46 @@ public class AdminUserService {
     private final UserService userService;
     private final PasswordEncoder passwordEncoder;
     private final UserMapper userMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ListingCounts listingCounts;
 
     public AdminUserService(
             UserAccountRepository userRepository,
             UserService userService,
             PasswordEncoder passwordEncoder,
-            UserMapper userMapper) {
+            UserMapper userMapper,
+            ApplicationEventPublisher eventPublisher,
+            ListingCounts listingCounts) {
         this.userRepository = userRepository;
         this.userService = userService;
         this.passwordEncoder = passwordEncoder;
         this.userMapper = userMapper;
+        this.eventPublisher = eventPublisher;
+        this.listingCounts = listingCounts;
     }
 
-    public PageResponse<UserResponse> listUsers(String search, Pageable pageable) {
-        Page<UserAccount> page;
-        if (search != null && !search.isBlank()) {
-            String term = search.trim();
-            page = userRepository.findByUsernameContainingIgnoreCaseOrFullNameContainingIgnoreCase(
-                    term, term, pageable);
-        } else {
-            page = userRepository.findAll(pageable);
+    public PageResponse<UserResponse> listUsers(String search, Pageable pageable, CountMode count) {
+        if (search == null || search.isBlank()) {
+            return listingCounts.page(
+                    count,
+                    pageable,
+                    new UserCountKey(null),
+                    page -> userRepository.findAll(page).map(userMapper::toResponse),
+                    page -> userRepository.findSliceBy(page).map(userMapper::toResponse),
+                    userRepository::count);
         }
-        return PageResponse.from(page.map(userMapper::toResponse));
+        String term = search.trim();
+        return listingCounts.page(
+                count,
+                pageable,
+                new UserCountKey(term.toLowerCase(Locale.ROOT)),
+                page -> userRepository
+                        .findByUsernameContainingIgnoreCaseOrFullNameContainingIgnoreCase(term, term, page)
+                        .map(userMapper::toResponse),
+                page -> userRepository
+                        .findSliceByUsernameContainingIgnoreCaseOrFullNameContainingIgnoreCase(term, term, page)
+                        .map(userMapper::toResponse),
+                () -> userRepository.countByUsernameContainingIgnoreCaseOrFullNameContainingIgnoreCase(term, term));
     }
 
     public UserResponse getUser(UUID userId) {
@@ -91,20 +113,41 @@ public class AdminUserService {
             user.setEmail(request.email());
         }
 
+        Set<Role> roles = EnumSet.copyOf(request.roles());
+        boolean passwordChanged = request.password() != null && !request.password().isBlank();
+        boolean securityChanged = passwordChanged
+                || user.isEnabled() != request.enabled()
+                || !roles.equals(user.getRoles());
+
         user.setFullName(request.fullName());
         user.setEnabled(request.enabled());
-        user.setRoles(EnumSet.copyOf(request.roles()));
+        user.setRoles(roles);
 
-        if (request.password() != null && !request.password().isBlank()) {
+        if (passwordChanged) {
             user.setPasswordHash(passwordEncoder.encode(request.password()));
         }
+        if (securityChanged) {
+            user.setSecurityVersion(user.getSecurityVersion() + 1);
+        }
 
         userService.update(user);
+        if (securityChanged) {
+            eventPublisher.publishEvent(new UserSecurityVersion(user.getId(), user.getSecurityVersion()));
+        }
         return userMapper.toResponse(user);
     }
 
+    /**
+     * Deletes the user and leaves a tombstone in the same transaction, through which every instance revokes the
+     * principals embedded in the user's unexpired tokens.
+     */
     @Transactional
     public void deleteUser(UUID userId) {
+        userRepository.insertDeletedUser(userId, LocalDateTime.now());
         userService.delete(userId);
+        eventPublisher.publishEvent(UserSecurityVersion.deleted(userId));
+    }
+
+    private record UserCountKey(String search) {
     }
 }
@@ -32,6 +32,7 @@ public class AuthenticationService {
     private final JwtService jwtService;
     private final BankUserDetailsService userDetailsService;
     private final AppProperties properties;
+    private final LastLoginRecorder lastLoginRecorder;
 
     @Transactional
     public TokenResponse register(RegisterRequest request) {
@@ -62,7 +63,7 @@ public class AuthenticationService {
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(request.username(), request.password()));
         AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
-        userService.updateLastLogin(user.id());
+        lastLoginRecorder.record(user.id(), LocalDateTime.now());
         return buildTokenResponse(user);
     }
 
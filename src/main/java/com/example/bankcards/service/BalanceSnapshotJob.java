@@ -0,0 +1,36 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.AppProperties;
+import java.time.LocalDateTime;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically rolls recent ledger entries into {@code balance_snapshots}, keeping the delta that
+ * {@link LedgerService#getBalanceAt} has to scan short.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.ledger.snapshot", name = "enabled", havingValue = "true")
+public class BalanceSnapshotJob {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceSnapshotJob.class);
+
+    private final LedgerService ledgerService;
+    private final AppProperties properties;
+
+    @Scheduled(fixedDelayString = "${app.ledger.snapshot.interval}")
+    public void takeSnapshots() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.getLedger().getSnapshot().getSettleLag());
+        try {
+            int written = ledgerService.takeSnapshots(cutoff);
+            log.debug("Wrote {} balance snapshots up to {}", written, cutoff);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to take balance snapshots, will retry on the next run", ex);
+        }
+    }
+}
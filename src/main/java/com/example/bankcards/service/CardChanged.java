@@ -0,0 +1,10 @@
+package com.example.bankcards.service;
+
+import java.util.UUID;
+
+/**
+ * Published whenever a card row is written, so that copies of the card held outside the persistence context can be
+ * dropped once the change commits.
+ */
+public record CardChanged(UUID cardId) {
+}
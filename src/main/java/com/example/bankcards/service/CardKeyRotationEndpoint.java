@@ -0,0 +1,26 @@
+package com.example.bankcards.service;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the progress of {@link CardKeyRotationJob} as {@code /actuator/cardkeyrotation}.
+ */
+@Component
+@Endpoint(id = "cardkeyrotation")
+@ConditionalOnProperty(prefix = "app.crypto.rotation", name = "enabled", havingValue = "true")
+public class CardKeyRotationEndpoint {
+
+    private final CardKeyRotationJob rotationJob;
+
+    public CardKeyRotationEndpoint(CardKeyRotationJob rotationJob) {
+        this.rotationJob = rotationJob;
+    }
+
+    @ReadOperation
+    public CardKeyRotationJob.Progress progress() {
+        return rotationJob.progress();
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.exception.CryptoException;
+import com.example.bankcards.repository.CardCipherRef;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.KeyVersionCount;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Re-encrypts card numbers still stored under an older key version, or still in the legacy Base64 columns, into
+ * {@code card_number_sealed} under the active key. Each run walks the remaining cards in id order, re-encrypts a
+ * chunk on a small worker pool, writes it back in its own transaction and pauses before the next chunk. Which cards
+ * are left is read from the rows themselves, so a run interrupted by a restart simply continues on the next one;
+ * reads keep working throughout because every configured key version and both storage formats stay decryptable.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.crypto.rotation", name = "enabled", havingValue = "true")
+public class CardKeyRotationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(CardKeyRotationJob.class);
+
+    private final CardRepository cardRepository;
+    private final CryptoService cryptoService;
+    private final TransactionTemplate transactionTemplate;
+    private final AppProperties.KeyRotation settings;
+    private final ThreadPoolTaskExecutor executor;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong reEncrypted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+
+    public CardKeyRotationJob(
+            CardRepository cardRepository,
+            CryptoService cryptoService,
+            TransactionTemplate transactionTemplate,
+            AppProperties properties) {
+        this.cardRepository = cardRepository;
+        this.cryptoService = cryptoService;
+        this.transactionTemplate = transactionTemplate;
+        this.settings = properties.getCrypto().getRotation();
+        this.executor = new ThreadPoolTaskExecutor();
+        this.executor.setCorePoolSize(settings.getThreads());
+        this.executor.setMaxPoolSize(settings.getThreads());
+        this.executor.setThreadNamePrefix("card-key-rotation-");
+        this.executor.initialize();
+    }
+
+    @Scheduled(fixedDelayString = "${app.crypto.rotation.interval}")
+    public void rotate() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int keyVersion = cryptoService.activeKeyVersion();
+            UUID lastId = new UUID(0L, 0L);
+            List<CardCipherRef> chunk = nextChunk(keyVersion, lastId);
+            if (chunk.isEmpty()) {
+                return;
+            }
+            startedAt = Instant.now();
+            finishedAt = null;
+            reEncrypted.set(0);
+            failed.set(0);
+            log.info("Re-encrypting card numbers under key version {}", keyVersion);
+            while (!chunk.isEmpty()) {
+                rotateChunk(chunk, keyVersion);
+                lastId = chunk.get(chunk.size() - 1).id();
+                pause();
+                chunk = nextChunk(keyVersion, lastId);
+            }
+            finishedAt = Instant.now();
+            log.atLevel(failed.get() > 0 ? Level.WARN : Level.INFO).log(
+                    "Card key rotation to version {} finished: {} re-encrypted, {} failed",
+                    keyVersion,
+                    reEncrypted.get(),
+                    failed.get());
+        } catch (RuntimeException ex) {
+            log.warn("Card key rotation interrupted, will resume on the next run", ex);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Progress progress() {
+        Map<Integer, Long> cardsByKeyVersion = new LinkedHashMap<>();
+        for (KeyVersionCount count : cardRepository.countByKeyVersion()) {
+            cardsByKeyVersion.put(count.keyVersion(), count.cards());
+        }
+        return new Progress(
+                cryptoService.activeKeyVersion(),
+                running.get(),
+                cardsByKeyVersion,
+                cardRepository.countBySealedNumberIsNull(),
+                reEncrypted.get(),
+                failed.get(),
+                startedAt,
+                finishedAt);
+    }
+
+    private List<CardCipherRef> nextChunk(int keyVersion, UUID afterId) {
+        return cardRepository.findCipherRefsToRewrite(
+                keyVersion, afterId, PageRequest.of(0, settings.getChunkSize()));
+    }
+
+    private void rotateChunk(List<CardCipherRef> chunk, int keyVersion) {
+        int slices = Math.min(settings.getThreads(), chunk.size());
+        int sliceSize = (chunk.size() + slices - 1) / slices;
+        List<CompletableFuture<List<Reencrypted>>> work = new ArrayList<>(slices);
+        for (int from = 0; from < chunk.size(); from += sliceSize) {
+            List<CardCipherRef> slice = chunk.subList(from, Math.min(from + sliceSize, chunk.size()));
+            work.add(CompletableFuture.supplyAsync(() -> reencrypt(slice), executor));
+        }
+
+        List<Reencrypted> results = new ArrayList<>(chunk.size());
+        for (CompletableFuture<List<Reencrypted>> slice : work) {
+            results.addAll(slice.join());
+        }
+        if (results.isEmpty()) {
+            return;
+        }
+        UUID[] ids = new UUID[results.size()];
+        byte[][] sealed = new byte[results.size()][];
+        for (int i = 0; i < results.size(); i++) {
+            ids[i] = results.get(i).id();
+            sealed[i] = results.get(i).data().sealed();
+        }
+        Integer updated = transactionTemplate.execute(status ->
+                cardRepository.updateSealedNumbers(ids, sealed, keyVersion));
+        reEncrypted.addAndGet(updated == null ? 0 : updated);
+    }
+
+    /**
+     * Re-encrypts a slice through the batch API of {@link CryptoService}. If any card of the slice cannot be
+     * decrypted, the slice is redone one card at a time so that only the broken cards are left behind.
+     */
+    private List<Reencrypted> reencrypt(List<CardCipherRef> slice) {
+        List<UUID> ids = new ArrayList<>(slice.size());
+        List<EncryptedData> current = new ArrayList<>(slice.size());
+        for (CardCipherRef ref : slice) {
+            try {
+                current.add(EncryptedData.fromColumns(
+                        ref.sealedNumber(), ref.encryptedNumber(), ref.encryptionIv(), ref.keyVersion()));
+                ids.add(ref.id());
+            } catch (CryptoException ex) {
+                skip(ref.id(), ref.keyVersion(), ex);
+            }
+        }
+        List<byte[]> plainTexts = null;
+        try {
+            plainTexts = cryptoService.decryptAll(current);
+            List<EncryptedData> rewritten = cryptoService.encryptAll(plainTexts);
+            List<Reencrypted> results = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                results.add(new Reencrypted(ids.get(i), rewritten.get(i)));
+            }
+            return results;
+        } catch (CryptoException ex) {
+            return reencryptOneByOne(ids, current);
+        } finally {
+            if (plainTexts != null) {
+                plainTexts.forEach(plainText -> Arrays.fill(plainText, (byte) 0));
+            }
+        }
+    }
+
+    private List<Reencrypted> reencryptOneByOne(List<UUID> ids, List<EncryptedData> current) {
+        List<Reencrypted> results = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            try {
+                results.add(new Reencrypted(ids.get(i), cryptoService.reencrypt(current.get(i))));
+            } catch (CryptoException ex) {
+                skip(ids.get(i), current.get(i).keyVersion(), ex);
+            }
+        }
+        return results;
+    }
+
+    private void skip(UUID cardId, int keyVersion, CryptoException ex) {
+        failed.incrementAndGet();
+        log.debug("Cannot re-encrypt card {} from key version {}: {}", cardId, keyVersion, ex.getMessage());
+    }
+
+    private void pause() {
+        long millis = settings.getChunkPause().toMillis();
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Card key rotation interrupted", ex);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private record Reencrypted(UUID id, EncryptedData data) {
+    }
+
+    /**
+     * Snapshot of the rotation state. The counters and timestamps describe the latest run that found work.
+     */
+    public record Progress(
+            int activeKeyVersion,
+            boolean running,
+            Map<Integer, Long> cardsByKeyVersion,
+            long legacyEncodedCards,
+            long reEncrypted,
+            long failed,
+            Instant startedAt,
+            Instant finishedAt) {
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+
+public record CardPair(Card source, Card target) {
+}
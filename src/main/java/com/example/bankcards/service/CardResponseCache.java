@@ -0,0 +1,80 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.dto.card.CardResponse;
+import com.example.bankcards.security.UserAccountChanged;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Near cache of {@link CardResponse}s by card id. Entries are dropped once a change to the card, or to its owner's
+ * name, commits on this instance; changes committed elsewhere are picked up when the entry expires. Hit and miss
+ * counts are published as {@code cache.gets}, and the age of every entry served from the cache as
+ * {@value #AGE_METRIC}.
+ */
+@Component
+public class CardResponseCache {
+
+    static final String CACHE_NAME = "bankcards.cards";
+    static final String AGE_METRIC = "bankcards.cards.cache.age";
+
+    private final Cache<UUID, CachedCard> cards;
+    private final Timer age;
+
+    public CardResponseCache(AppProperties properties, MeterRegistry meterRegistry) {
+        AppProperties.CardCache cache = properties.getCardCache();
+        this.cards = Caffeine.newBuilder()
+                .maximumSize(cache.getMaximumSize())
+                .expireAfterWrite(cache.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cards, CACHE_NAME);
+        this.age = Timer.builder(AGE_METRIC)
+                .description("Time since a card served from the cache was loaded")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached card, loading it on a miss. Concurrent misses for the same card share one load, and an
+     * invalidation racing with a load waits for it and then drops what it loaded.
+     *
+     * @param loader returns {@code null} when the card does not exist; that answer is not cached
+     */
+    public CardResponse get(UUID cardId, Function<UUID, CardResponse> loader) {
+        boolean[] loaded = new boolean[1];
+        CachedCard cached = cards.get(cardId, id -> {
+            loaded[0] = true;
+            CardResponse response = loader.apply(id);
+            return response == null ? null : new CachedCard(response, System.nanoTime());
+        });
+        if (cached == null) {
+            return null;
+        }
+        if (!loaded[0]) {
+            age.record(System.nanoTime() - cached.loadedAt(), TimeUnit.NANOSECONDS);
+        }
+        return cached.response();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onCardChanged(CardChanged change) {
+        cards.invalidate(change.cardId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onUserAccountChanged(UserAccountChanged change) {
+        cards.asMap().values().removeIf(cached -> change.userId().equals(cached.response().ownerId()));
+    }
+
+    private record CachedCard(CardResponse response, long loadedAt) {
+    }
+}
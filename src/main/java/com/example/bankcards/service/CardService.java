@@ -1,9 +1,13 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.card.CardBalanceResponse;
 import com.example.bankcards.dto.card.CardCreateRequest;
 import com.example.bankcards.dto.card.CardFilterRequest;
 import com.example.bankcards.dto.card.CardResponse;
+import com.example.bankcards.dto.card.CardSortKey;
 import com.example.bankcards.dto.card.CardStatusUpdateRequest;
+import com.example.bankcards.dto.common.CountMode;
+import com.example.bankcards.dto.common.CursorPage;
 import com.example.bankcards.dto.common.PageResponse;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
@@ -11,16 +15,30 @@ import com.example.bankcards.entity.UserAccount;
 import com.example.bankcards.exception.BusinessException;
 import com.example.bankcards.exception.ResourceNotFoundException;
 import com.example.bankcards.mapper.CardMapper;
+import com.example.bankcards.repository.CardListingRow;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.CardSpecifications;
+import com.example.bankcards.util.CardKeysetCursor;
 import com.example.bankcards.util.CardMaskingUtil;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
@@ -28,31 +46,55 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional(readOnly = true)
 public class CardService {
 
+    static final String LOCK_WAIT_METRIC = "bankcards.transfer.lock.wait";
+
+    private static final String DUPLICATE_CARD_MESSAGE = "Card with the same number already exists";
+
+    /**
+     * Orders ids the way PostgreSQL compares {@code uuid} values: as unsigned bytes.
+     */
+    private static final Comparator<UUID> DATABASE_ID_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
     private final CardRepository cardRepository;
     private final UserService userService;
     private final CryptoService cryptoService;
     private final CardMapper cardMapper;
+    private final MeterRegistry meterRegistry;
+    private final LedgerService ledgerService;
+    private final ListingCounts listingCounts;
+    private final CardResponseCache cardResponseCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public CardResponse createCard(CardCreateRequest request) {
         UserAccount owner = userService.requireActiveUser(request.ownerId());
         validateCardNumberExpiration(request.expirationDate());
-        String maskedNumber = CardMaskingUtil.mask(request.cardNumber());
-        if (cardRepository.existsByOwnerIdAndMaskedNumber(owner.getId(), maskedNumber)) {
-            throw new BusinessException("Card with the same number already exists for this owner");
+        String fingerprint = cryptoService.fingerprint(request.cardNumber());
+        if (cardRepository.existsByPanFingerprint(fingerprint)) {
+            throw new BusinessException(DUPLICATE_CARD_MESSAGE);
         }
         EncryptedData encrypted = cryptoService.encrypt(request.cardNumber());
 
         Card card = new Card();
         card.setOwner(owner);
-        card.setMaskedNumber(maskedNumber);
-        card.setEncryptedNumber(encrypted.cipherText());
-        card.setEncryptionIv(encrypted.initializationVector());
+        card.setMaskedNumber(CardMaskingUtil.mask(request.cardNumber()));
+        card.setLast4(CardMaskingUtil.lastFour(request.cardNumber()));
+        card.setSealedNumber(encrypted.sealed());
+        card.setKeyVersion(encrypted.keyVersion());
+        card.setPanFingerprint(fingerprint);
         card.setExpirationDate(request.expirationDate());
         card.setStatus(CardStatus.ACTIVE);
         card.setBalance(request.initialBalance());
 
-        cardRepository.save(card);
+        try {
+            cardRepository.saveAndFlush(card);
+        } catch (DataIntegrityViolationException ex) {
+            // Lost a race with a concurrent request issuing the same number.
+            throw new BusinessException(DUPLICATE_CARD_MESSAGE);
+        }
+        ledgerService.recordOpening(card);
         return cardMapper.toResponse(card);
     }
 
@@ -60,33 +102,119 @@ public class CardService {
     public CardResponse updateStatus(UUID cardId, CardStatusUpdateRequest request) {
         Card card = requireCard(cardId);
         card.setStatus(request.status());
+        eventPublisher.publishEvent(new CardChanged(cardId));
         return cardMapper.toResponse(card);
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Served from {@link CardResponseCache}; only a miss touches the database, so no transaction is started here.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public CardResponse getCard(UUID cardId) {
-        return cardMapper.toResponse(requireCard(cardId));
+        CardResponse card = cardResponseCache.get(cardId, this::loadResponse);
+        if (card == null) {
+            throw new ResourceNotFoundException("Card not found");
+        }
+        return card;
     }
 
+    /**
+     * Finds the card issued with the given full number through its fingerprint, without decrypting any card.
+     */
     @Transactional(readOnly = true)
+    public CardResponse findByCardNumber(String cardNumber) {
+        return cardRepository
+                .findByPanFingerprint(cryptoService.fingerprint(cardNumber))
+                .map(cardMapper::toResponse)
+                .orElseThrow(() -> new ResourceNotFoundException("Card not found"));
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public CardResponse getCardForOwner(UUID cardId, UUID ownerId) {
-        Card card = cardRepository
-                .findByIdAndOwnerId(cardId, ownerId)
-                .orElseThrow(() ->
-                        new ResourceNotFoundException("Card not found for the specified owner"));
-        return cardMapper.toResponse(card);
+        CardResponse card = cardResponseCache.get(cardId, this::loadResponse);
+        if (card == null || !ownerId.equals(card.ownerId())) {
+            throw new ResourceNotFoundException("Card not found for the specified owner");
+        }
+        return card;
+    }
+
+    /**
+     * Reads the card together with its owner's name in one statement.
+     */
+    private CardResponse loadResponse(UUID cardId) {
+        List<CardListingRow> rows =
+                cardRepository.findListingRows(CardSpecifications.hasId(cardId), Sort.unsorted(), 1);
+        return rows.isEmpty() ? null : cardMapper.toResponse(rows.get(0));
+    }
+
+    /**
+     * Balance of the card as it was at {@code at}, answered from the ledger rather than {@code cards.balance}.
+     */
+    @Transactional(readOnly = true)
+    public CardBalanceResponse getBalanceAt(UUID cardId, LocalDateTime at) {
+        requireCard(cardId);
+        return new CardBalanceResponse(cardId, ledgerService.getBalanceAt(cardId, at), at);
+    }
+
+    @Transactional(readOnly = true)
+    public CardBalanceResponse getBalanceAtForOwner(UUID cardId, UUID ownerId, LocalDateTime at) {
+        if (!cardRepository.existsByIdAndOwnerId(cardId, ownerId)) {
+            throw new ResourceNotFoundException("Card not found for the specified owner");
+        }
+        return new CardBalanceResponse(cardId, ledgerService.getBalanceAt(cardId, at), at);
     }
 
     @Transactional(readOnly = true)
-    public PageResponse<CardResponse> findCards(CardFilterRequest filter, Pageable pageable) {
-        Page<Card> page = cardRepository.findAll(CardSpecifications.withFilter(filter), pageable);
-        Page<CardResponse> mapped = page.map(cardMapper::toResponse);
-        return PageResponse.from(mapped);
+    public PageResponse<CardResponse> findCards(CardFilterRequest filter, Pageable pageable, CountMode count) {
+        Specification<Card> spec = CardSpecifications.withFilter(filter);
+        return listingCounts.page(
+                count,
+                pageable,
+                CardCountKey.of(filter),
+                page -> cardRepository.findListingRows(spec, page).map(cardMapper::toResponse),
+                page -> cardRepository.findListingRowSlice(spec, page).map(cardMapper::toResponse),
+                () -> cardRepository.count(spec));
     }
 
     @Transactional(readOnly = true)
     public PageResponse<CardResponse> findCardsForOwner(
-            UUID ownerId, CardFilterRequest filter, Pageable pageable) {
+            UUID ownerId, CardFilterRequest filter, Pageable pageable, CountMode count) {
+        return findCards(ownerFilter(ownerId, filter), pageable, count);
+    }
+
+    /**
+     * Lists cards matching the filter using keyset pagination ordered by {@code (sortKey, id)}. Pass the
+     * {@code nextCursor} of the previous page to continue; a {@code null} cursor starts from the first card. Unlike
+     * {@link #findCards}, no row count is taken and earlier pages are never skipped over, so every page costs the
+     * same however deep it is.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<CardResponse> scrollCards(
+            CardFilterRequest filter, CardSortKey sortKey, Sort.Direction direction, String cursor, int size) {
+        CardKeysetCursor position = cursor == null ? null : CardKeysetCursor.decode(cursor, sortKey, direction);
+        Specification<Card> spec = CardSpecifications.withFilter(filter).and(CardSpecifications.after(position));
+        Sort order = Sort.by(direction, sortKey.property(), "id");
+        List<CardListingRow> rows = cardRepository.findListingRows(spec, order, size + 1);
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            nextCursor = CardKeysetCursor.after(rows.get(size - 1), sortKey, direction).encode();
+        }
+        return new CursorPage<>(rows.stream().map(cardMapper::toResponse).toList(), nextCursor);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<CardResponse> scrollCardsForOwner(
+            UUID ownerId,
+            CardFilterRequest filter,
+            CardSortKey sortKey,
+            Sort.Direction direction,
+            String cursor,
+            int size) {
+        return scrollCards(ownerFilter(ownerId, filter), sortKey, direction, cursor, size);
+    }
+
+    private static CardFilterRequest ownerFilter(UUID ownerId, CardFilterRequest filter) {
         CardFilterRequest effectiveFilter = new CardFilterRequest();
         effectiveFilter.setOwnerId(ownerId);
         if (filter != null) {
@@ -95,15 +223,14 @@ public class CardService {
             effectiveFilter.setMinBalance(filter.getMinBalance());
             effectiveFilter.setMaxBalance(filter.getMaxBalance());
         }
-        Page<Card> page = cardRepository.findAll(CardSpecifications.withFilter(effectiveFilter), pageable);
-        Page<CardResponse> mapped = page.map(cardMapper::toResponse);
-        return PageResponse.from(mapped);
+        return effectiveFilter;
     }
 
     @Transactional
     public void deleteCard(UUID cardId) {
         Card card = requireCard(cardId);
         cardRepository.delete(card);
+        eventPublisher.publishEvent(new CardChanged(cardId));
     }
 
     @Transactional
@@ -113,12 +240,94 @@ public class CardService {
                 .orElseThrow(() -> new ResourceNotFoundException("Card not found"));
     }
 
+    /**
+     * Locks both cards of a transfer in one statement. The database takes the row locks in ascending id order
+     * regardless of the transfer direction, which keeps opposite transfers between the same cards from
+     * deadlocking. Time spent waiting for the locks is recorded in the {@value #LOCK_WAIT_METRIC} timer.
+     */
+    @Transactional
+    public CardPair lockCardPair(UUID sourceCardId, UUID targetCardId) {
+        Map<UUID, Card> cards = lockCards(List.of(sourceCardId, targetCardId));
+        Card source = cards.get(sourceCardId);
+        Card target = cards.get(targetCardId);
+        if (source == null || target == null) {
+            throw new ResourceNotFoundException("Card not found");
+        }
+        return new CardPair(source, target);
+    }
+
+    /**
+     * Reads both cards of a transfer without locking them. The cards enter the persistence context in the same
+     * ascending id order used by {@link #lockCards(Collection)}, so their version-checked updates are flushed
+     * in that order as well.
+     */
+    @Transactional(readOnly = true)
+    public CardPair readCardPair(UUID sourceCardId, UUID targetCardId) {
+        Map<UUID, Card> cardsById = new HashMap<>();
+        for (Card card : cardRepository.findByIdInOrderByIdAsc(List.of(sourceCardId, targetCardId))) {
+            cardsById.put(card.getId(), card);
+        }
+        Card source = cardsById.get(sourceCardId);
+        Card target = cardsById.get(targetCardId);
+        if (source == null || target == null) {
+            throw new ResourceNotFoundException("Card not found");
+        }
+        return new CardPair(source, target);
+    }
+
+    /**
+     * Locks any number of cards with the same ordering guarantee as {@link #lockCardPair(UUID, UUID)}.
+     * Cards that do not exist are absent from the returned map.
+     */
+    @Transactional
+    public Map<UUID, Card> lockCards(Collection<UUID> cardIds) {
+        long startedAt = System.nanoTime();
+        List<Card> cards = cardRepository.findWithLockingByIdInOrderByIdAsc(cardIds);
+        meterRegistry.timer(LOCK_WAIT_METRIC).record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+
+        Map<UUID, Card> cardsById = new HashMap<>();
+        for (Card card : cards) {
+            cardsById.put(card.getId(), card);
+        }
+        return cardsById;
+    }
+
+    /**
+     * Moves funds with two guarded {@code UPDATE} statements instead of locking the cards first. The updates
+     * are issued in ascending card id order, matching {@link #lockCards(Collection)}, so they cannot deadlock
+     * with each other or with the locking path. The time spent in both statements, which is dominated by row
+     * lock waits, is recorded in the {@value #LOCK_WAIT_METRIC} timer.
+     *
+     * @throws BusinessException if either guard rejects the update; the caller's transaction must roll back
+     */
+    @Transactional
+    public void transferGuarded(UUID ownerId, UUID sourceCardId, UUID targetCardId, BigDecimal amount) {
+        long startedAt = System.nanoTime();
+        boolean sourceFirst = DATABASE_ID_ORDER.compare(sourceCardId, targetCardId) < 0;
+        try {
+            if (sourceFirst) {
+                debit(ownerId, sourceCardId, amount);
+                credit(ownerId, targetCardId, amount);
+            } else {
+                credit(ownerId, targetCardId, amount);
+                debit(ownerId, sourceCardId, amount);
+            }
+        } finally {
+            meterRegistry.timer(LOCK_WAIT_METRIC).record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public Card getReference(UUID cardId) {
+        return cardRepository.getReferenceById(cardId);
+    }
+
     @Transactional
     public void updateBalance(Card card, BigDecimal newBalance) {
         if (newBalance.compareTo(BigDecimal.ZERO) < 0) {
             throw new BusinessException("Card balance cannot become negative");
         }
         card.setBalance(newBalance);
+        eventPublisher.publishEvent(new CardChanged(card.getId()));
     }
 
     @Transactional
@@ -130,9 +339,45 @@ public class CardService {
             throw new BusinessException("Card is already blocked");
         }
         card.setStatus(CardStatus.BLOCKED);
+        eventPublisher.publishEvent(new CardChanged(cardId));
         return cardMapper.toResponse(card);
     }
 
+    private void debit(UUID ownerId, UUID cardId, BigDecimal amount) {
+        if (cardRepository.debitIfAvailable(cardId, ownerId, amount) == 0) {
+            throw rejectedUpdate(ownerId, cardId, amount);
+        }
+        eventPublisher.publishEvent(new CardChanged(cardId));
+    }
+
+    private void credit(UUID ownerId, UUID cardId, BigDecimal amount) {
+        if (cardRepository.creditIfActive(cardId, ownerId, amount) == 0) {
+            throw rejectedUpdate(ownerId, cardId, null);
+        }
+        eventPublisher.publishEvent(new CardChanged(cardId));
+    }
+
+    /**
+     * Explains why a guarded update matched no rows. Only runs on the failure path, so successful transfers
+     * never read the cards.
+     */
+    private BusinessException rejectedUpdate(UUID ownerId, UUID cardId, BigDecimal debitAmount) {
+        Card card = cardRepository.findById(cardId).orElseThrow(() -> new ResourceNotFoundException("Card not found"));
+        if (!ownerId.equals(card.getOwner().getId())) {
+            return new BusinessException("Cards must belong to the authenticated user");
+        }
+        if (card.getStatus() == CardStatus.BLOCKED) {
+            return new BusinessException("Card is blocked");
+        }
+        if (card.getStatus() == CardStatus.EXPIRED || card.getExpirationDate().isBefore(LocalDate.now())) {
+            return new BusinessException("Card is expired");
+        }
+        if (debitAmount != null && card.getBalance().compareTo(debitAmount) < 0) {
+            return new BusinessException("Insufficient funds on the source card");
+        }
+        return new BusinessException("Card was modified concurrently, please retry");
+    }
+
     Card requireCard(UUID cardId) {
         return cardRepository
                 .findById(cardId)
@@ -144,4 +389,31 @@ public class CardService {
             throw new BusinessException("Card expiration date must be in the future");
         }
     }
+
+    /**
+     * Cache key for estimated card counts: the filter reduced to the predicates it actually applies, so that
+     * equivalent filters share one count.
+     */
+    private record CardCountKey(
+            UUID ownerId, CardStatus status, String lastDigits, BigDecimal minBalance, BigDecimal maxBalance) {
+
+        static CardCountKey of(CardFilterRequest filter) {
+            if (filter == null) {
+                return new CardCountKey(null, null, null, null, null);
+            }
+            String digits = filter.hasMaskedNumberFilter()
+                    ? CardSpecifications.visibleDigits(filter.getMaskedNumber())
+                    : "";
+            return new CardCountKey(
+                    filter.getOwnerId(),
+                    filter.getStatus(),
+                    digits.isEmpty() ? null : digits,
+                    normalize(filter.getMinBalance()),
+                    normalize(filter.getMaxBalance()));
+        }
+
+        private static BigDecimal normalize(BigDecimal amount) {
+            return amount == null ? null : amount.stripTrailingZeros();
+        }
+    }
 }
@@ -5,9 +5,15 @@ import com.example.bankcards.exception.CryptoException;
 import jakarta.annotation.PostConstruct;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
+import java.security.ProviderException;
 import java.security.SecureRandom;
-import java.util.Base64;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
@@ -20,10 +26,22 @@ public class CryptoService {
     private static final String ALGORITHM = "AES";
     private static final int TAG_LENGTH_BITS = 128;
     private static final int IV_LENGTH_BYTES = 12;
+    private static final String FINGERPRINT_ALGORITHM = "HmacSHA256";
+    private static final int MIN_FINGERPRINT_KEY_BYTES = 32;
 
     private final AppProperties properties;
     private final SecureRandom secureRandom = new SecureRandom();
-    private SecretKey secretKey;
+
+    /**
+     * {@link Cipher} lookups go through the provider registry and are not cheap; instances are not thread-safe, so
+     * each thread keeps its own and re-initialises it with a fresh IV for every record.
+     */
+    private final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(CryptoService::newCipher);
+    private final ThreadLocal<Mac> fingerprintMacs = ThreadLocal.withInitial(this::newFingerprintMac);
+    private final Map<Integer, SecretKey> keyring = new HashMap<>();
+    private int activeKeyVersion;
+    private SecretKey activeKey;
+    private SecretKey fingerprintKey;
 
     public CryptoService(AppProperties properties) {
         this.properties = properties;
@@ -31,45 +49,167 @@ public class CryptoService {
 
     @PostConstruct
     void init() {
-        String key = properties.getCrypto().getSecretKey();
-        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
-        if (keyBytes.length != 16 && keyBytes.length != 24 && keyBytes.length != 32) {
-            throw new IllegalStateException("Crypto secret key must be 16, 24, or 32 bytes long");
+        AppProperties.Crypto crypto = properties.getCrypto();
+        if (crypto.getKeys().containsKey(1)) {
+            throw new IllegalStateException("Key version 1 is the crypto secret key and cannot be redefined");
+        }
+        keyring.put(1, aesKey(crypto.getSecretKey()));
+        crypto.getKeys().forEach((version, key) -> keyring.put(version, aesKey(key)));
+        this.activeKeyVersion = crypto.getActiveKeyVersion();
+        this.activeKey = keyring.get(activeKeyVersion);
+        if (activeKey == null) {
+            throw new IllegalStateException("No crypto key configured for active key version " + activeKeyVersion);
         }
-        this.secretKey = new SecretKeySpec(keyBytes, ALGORITHM);
+        byte[] fingerprintKeyBytes = properties.getCrypto().getFingerprintKey().getBytes(StandardCharsets.UTF_8);
+        if (fingerprintKeyBytes.length < MIN_FINGERPRINT_KEY_BYTES) {
+            throw new IllegalStateException("Card fingerprint key must be at least 32 bytes long");
+        }
+        this.fingerprintKey = new SecretKeySpec(fingerprintKeyBytes, FINGERPRINT_ALGORITHM);
     }
 
+    public int activeKeyVersion() {
+        return activeKeyVersion;
+    }
+
+    /**
+     * Deterministic, keyed fingerprint of a card number (hex encoded HMAC-SHA256). Equal numbers always produce
+     * equal fingerprints, so they can be matched through an index without decrypting anything.
+     */
+    public String fingerprint(String cardNumber) {
+        Mac mac = fingerprintMacs.get();
+        return HexFormat.of().formatHex(mac.doFinal(cardNumber.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Encrypts a card number under the active key with a fresh IV.
+     *
+     * @throws CryptoException if encryption fails
+     */
     public EncryptedData encrypt(String plainText) {
         try {
-            byte[] iv = new byte[IV_LENGTH_BYTES];
-            secureRandom.nextBytes(iv);
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
-            byte[] encrypted = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
             return new EncryptedData(
-                    Base64.getEncoder().encodeToString(encrypted),
-                    Base64.getEncoder().encodeToString(iv));
+                    seal(ciphers.get(), plainText.getBytes(StandardCharsets.UTF_8)), activeKeyVersion);
         } catch (GeneralSecurityException e) {
             throw new CryptoException("Failed to encrypt card number", e);
         }
     }
 
     /**
-     * Decrypts the provided encrypted data using AES-GCM encryption.
+     * Decrypts a card number sealed under any configured key version.
      *
-     * @param data the encrypted data containing the ciphertext and the initialization vector
+     * @param data the sealed card number and the version of the key it was sealed under
      * @return the decrypted plaintext as a string
-     * @throws CryptoException if decryption fails due to invalid data or a cryptographic error
+     * @throws CryptoException if decryption fails due to invalid data, an unknown key version or a cryptographic
+     *         error
      */
-     String decrypt(EncryptedData data) {
+    String decrypt(EncryptedData data) {
+        SecretKey key = key(data.keyVersion());
         try {
-            byte[] iv = Base64.getDecoder().decode(data.initializationVector());
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
-            byte[] decrypted = cipher.doFinal(Base64.getDecoder().decode(data.cipherText()));
-            return new String(decrypted, StandardCharsets.UTF_8);
+            return new String(open(ciphers.get(), key, data.sealed()), StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException | ProviderException | IllegalArgumentException e) {
+            throw new CryptoException("Failed to decrypt card number", e);
+        }
+    }
+
+    /**
+     * Decrypts a card number and encrypts it again under the active key version with a fresh IV.
+     *
+     * @throws CryptoException if the number cannot be decrypted
+     */
+    EncryptedData reencrypt(EncryptedData data) {
+        return encrypt(decrypt(data));
+    }
+
+    /**
+     * Encrypts each record under the active key version, with its own random IV. The calling thread's cipher is
+     * looked up once for the whole batch; every record still gets a new IV and output array.
+     *
+     * @throws CryptoException if any record fails to encrypt
+     */
+    public List<EncryptedData> encryptAll(List<byte[]> plainTexts) {
+        Cipher cipher = ciphers.get();
+        List<EncryptedData> sealed = new ArrayList<>(plainTexts.size());
+        try {
+            for (byte[] plainText : plainTexts) {
+                sealed.add(new EncryptedData(seal(cipher, plainText), activeKeyVersion));
+            }
         } catch (GeneralSecurityException e) {
+            throw new CryptoException("Failed to encrypt card number", e);
+        }
+        return sealed;
+    }
+
+    /**
+     * Decrypts each record under the key version it was sealed with, as {@link #decrypt} does.
+     *
+     * @throws CryptoException if any record is truncated, was tampered with or names a key version that is not
+     *         configured
+     */
+    public List<byte[]> decryptAll(List<EncryptedData> records) {
+        Cipher cipher = ciphers.get();
+        List<byte[]> plainTexts = new ArrayList<>(records.size());
+        try {
+            for (EncryptedData record : records) {
+                plainTexts.add(open(cipher, key(record.keyVersion()), record.sealed()));
+            }
+        } catch (GeneralSecurityException | ProviderException | IllegalArgumentException e) {
             throw new CryptoException("Failed to decrypt card number", e);
         }
+        return plainTexts;
+    }
+
+    private SecretKey key(int keyVersion) {
+        SecretKey key = keyring.get(keyVersion);
+        if (key == null) {
+            throw new CryptoException("No key configured for key version " + keyVersion, null);
+        }
+        return key;
+    }
+
+    /**
+     * Writes {@code IV || ciphertext || tag} straight into a single array, with no intermediate copies.
+     */
+    private byte[] seal(Cipher cipher, byte[] plainText) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_LENGTH_BYTES];
+        secureRandom.nextBytes(iv);
+        cipher.init(Cipher.ENCRYPT_MODE, activeKey, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+        byte[] output = new byte[IV_LENGTH_BYTES + cipher.getOutputSize(plainText.length)];
+        System.arraycopy(iv, 0, output, 0, IV_LENGTH_BYTES);
+        cipher.doFinal(plainText, 0, plainText.length, output, IV_LENGTH_BYTES);
+        return output;
+    }
+
+    /**
+     * Reads the IV in place from the head of the record.
+     */
+    private static byte[] open(Cipher cipher, SecretKey key, byte[] sealed) throws GeneralSecurityException {
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, sealed, 0, IV_LENGTH_BYTES));
+        return cipher.doFinal(sealed, IV_LENGTH_BYTES, sealed.length - IV_LENGTH_BYTES);
+    }
+
+    private static SecretKey aesKey(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length != 16 && keyBytes.length != 24 && keyBytes.length != 32) {
+            throw new IllegalStateException("Crypto secret key must be 16, 24, or 32 bytes long");
+        }
+        return new SecretKeySpec(keyBytes, ALGORITHM);
+    }
+
+    private Mac newFingerprintMac() {
+        try {
+            Mac mac = Mac.getInstance(FINGERPRINT_ALGORITHM);
+            mac.init(fingerprintKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("AES-GCM is not available", e);
+        }
     }
 }
@@ -1,4 +1,34 @@
 package com.example.bankcards.service;
 
-public record EncryptedData(String cipherText, String initializationVector) {
+import com.example.bankcards.exception.CryptoException;
+import java.util.Base64;
+
+/**
+ * A card number sealed as {@code IV || ciphertext || tag}, together with the version of the key it was sealed
+ * under.
+ */
+public record EncryptedData(byte[] sealed, int keyVersion) {
+
+    /**
+     * Reads a card number as stored on its row: the binary column when present, otherwise the Base64 ciphertext
+     * and IV columns written before it existed.
+     *
+     * @throws CryptoException if the legacy columns are not valid Base64
+     */
+    public static EncryptedData fromColumns(
+            byte[] sealed, String legacyCipherText, String legacyIv, int keyVersion) {
+        if (sealed != null) {
+            return new EncryptedData(sealed, keyVersion);
+        }
+        try {
+            byte[] iv = Base64.getDecoder().decode(legacyIv);
+            byte[] cipherText = Base64.getDecoder().decode(legacyCipherText);
+            byte[] combined = new byte[iv.length + cipherText.length];
+            System.arraycopy(iv, 0, combined, 0, iv.length);
+            System.arraycopy(cipherText, 0, combined, iv.length, cipherText.length);
+            return new EncryptedData(combined, keyVersion);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new CryptoException("Stored card number is not valid Base64", e);
+        }
+    }
 }
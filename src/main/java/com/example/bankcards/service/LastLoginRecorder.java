@@ -0,0 +1,85 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.repository.UserAccountRepository;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Buffers last-login timestamps in memory and writes them in batches, so that a sign-in does not update its
+ * {@code users} row synchronously. Only the latest timestamp per user is kept between flushes, and whatever is
+ * pending is written on shutdown.
+ */
+@Component
+public class LastLoginRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(LastLoginRecorder.class);
+
+    private final UserAccountRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final ConcurrentMap<UUID, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    public LastLoginRecorder(
+            UserAccountRepository userRepository,
+            TransactionTemplate transactionTemplate,
+            AppProperties properties) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = properties.getLastLogin().getBatchSize();
+    }
+
+    public void record(UUID userId, LocalDateTime loggedInAt) {
+        pending.merge(userId, loggedInAt, (current, candidate) -> candidate.isAfter(current) ? candidate : current);
+    }
+
+    @Scheduled(fixedDelayString = "${app.last-login.flush-interval}")
+    public void flush() {
+        List<Map.Entry<UUID, LocalDateTime>> batch = new ArrayList<>(batchSize);
+        for (Map.Entry<UUID, LocalDateTime> entry : pending.entrySet()) {
+            // A newer login recorded meanwhile replaces the value, so the removal fails and it waits for the next run.
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+            if (batch.size() == batchSize) {
+                write(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private void write(List<Map.Entry<UUID, LocalDateTime>> batch) {
+        UUID[] userIds = new UUID[batch.size()];
+        LocalDateTime[] loggedInAt = new LocalDateTime[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            userIds[i] = batch.get(i).getKey();
+            loggedInAt[i] = batch.get(i).getValue();
+        }
+        try {
+            transactionTemplate.executeWithoutResult(
+                    status -> userRepository.updateLastLoginAt(userIds, loggedInAt));
+        } catch (RuntimeException ex) {
+            log.warn("Failed to write {} last-login timestamps, will retry on the next flush", batch.size(), ex);
+            batch.forEach(entry -> record(entry.getKey(), entry.getValue()));
+        }
+    }
+}
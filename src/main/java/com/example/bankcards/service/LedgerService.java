@@ -0,0 +1,120 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.BalanceSnapshot;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardTransfer;
+import com.example.bankcards.repository.BalanceSnapshotRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Double-entry record of every balance change. Each completed transfer appends a debit and a credit entry, each
+ * new card an opening entry, so the entries of a card always sum to {@code cards.balance}.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class LedgerService {
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final BalanceSnapshotRepository snapshotRepository;
+
+    /** Sequence numbers handed out at some point, waiting for the transactions that may hold them to end. */
+    private volatile AllocationMark allocationMark;
+
+    /**
+     * Appends both legs of a completed transfer. Entries are stamped with the application clock, the same clock
+     * {@link BalanceSnapshotJob} derives its cutoff from.
+     */
+    @Transactional
+    public void recordTransfer(CardTransfer transfer) {
+        ledgerEntryRepository.appendTransfer(
+                transfer.getId(),
+                transfer.getSourceCard().getId(),
+                transfer.getTargetCard().getId(),
+                transfer.getAmount(),
+                LocalDateTime.now());
+    }
+
+    @Transactional
+    public void recordOpening(Card card) {
+        ledgerEntryRepository.appendOpening(card.getId(), card.getBalance(), LocalDateTime.now());
+    }
+
+    /**
+     * Balance of the card as of {@code at}: the latest snapshot taken by then plus the entries appended after it
+     * up to {@code at}.
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getBalanceAt(UUID cardId, LocalDateTime at) {
+        Optional<BalanceSnapshot> snapshot = snapshotRepository
+                .findFirstByCardIdAndTakenAtLessThanEqualOrderByTakenAtDesc(cardId, at);
+        long afterSequence = snapshot.map(BalanceSnapshot::getLastSequence).orElse(0L);
+        BigDecimal base = snapshot.map(BalanceSnapshot::getBalance).orElse(BigDecimal.ZERO);
+        return base.add(ledgerEntryRepository.sumAfter(cardId, afterSequence, at));
+    }
+
+    /**
+     * Snapshots every card with entries created before {@code cutoff} that are not yet covered by a snapshot.
+     * <p>
+     * Sequence numbers are assigned at insert but become visible at commit, so an entry can commit after entries
+     * with higher numbers. Appends are never blocked for this; instead each run notes the last sequence number
+     * handed out and the first transaction id not yet assigned at that point. Appending transactions hold an id
+     * before they draw a number, so once every transaction below that id has ended, every number up to the noted
+     * one belongs to an entry that is either visible or will never exist. Runs only snapshot up to such a settled
+     * mark, usually the one noted by the previous run. The bound also stops before the first entry created at or
+     * after {@code cutoff}, so a snapshot never includes entries newer than its {@code taken_at}.
+     *
+     * @return the number of snapshots written, or {@code 0} if another instance is taking snapshots or no
+     *     sequence numbers have settled since the previous run
+     */
+    @Transactional
+    public int takeSnapshots(LocalDateTime cutoff) {
+        if (!snapshotRepository.tryLockSnapshots()) {
+            return 0;
+        }
+        Long settledSequence = settleAllocationMark();
+        if (settledSequence == null) {
+            return 0;
+        }
+        long fromSequence = snapshotRepository.findLastSnapshotSequence();
+        Long visibleSequence = ledgerEntryRepository.findSettledSequence(fromSequence, cutoff);
+        if (visibleSequence == null) {
+            return 0;
+        }
+        long toSequence = Math.min(visibleSequence, settledSequence);
+        if (toSequence <= fromSequence) {
+            return 0;
+        }
+        return snapshotRepository.insertSnapshots(fromSequence, toSequence, cutoff);
+    }
+
+    /**
+     * Returns the sequence number of the current mark if every transaction that may hold a number up to it has
+     * ended, and notes a new mark in its place. An unsettled mark is kept, so that a long-running append delays
+     * snapshots only until it ends.
+     */
+    private Long settleAllocationMark() {
+        AllocationMark mark = allocationMark;
+        Long settledSequence = null;
+        if (mark != null) {
+            if (ledgerEntryRepository.findOldestRunningXid() < mark.nextXid()) {
+                return null;
+            }
+            settledSequence = mark.sequence();
+        }
+        Long lastAllocated = ledgerEntryRepository.findLastAllocatedSequence();
+        allocationMark = new AllocationMark(
+                lastAllocated == null ? 0L : lastAllocated, ledgerEntryRepository.findNextXid());
+        return settledSequence;
+    }
+
+    private record AllocationMark(long sequence, long nextXid) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.dto.common.CountMode;
+import com.example.bankcards.dto.common.PageResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds {@link PageResponse}s for offset-paginated listings in the requested {@link CountMode}. Exact pages run a
+ * {@code COUNT} query on every call; the other modes only fetch one row past the page to learn whether more
+ * follow. Estimated totals are counted at most once per filter within the configured TTL and shared by every
+ * caller listing with that filter.
+ */
+@Component
+public class ListingCounts {
+
+    static final String CACHE_NAME = "bankcards.listing-counts";
+
+    private final Cache<Object, Long> counts;
+
+    public ListingCounts(AppProperties properties, MeterRegistry meterRegistry) {
+        AppProperties.ListingCountCache cache = properties.getListingCountCache();
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(cache.getMaximumSize())
+                .expireAfterWrite(cache.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, counts, CACHE_NAME);
+    }
+
+    /**
+     * @param countKey identifies the listing and its normalized filter; must implement {@code equals}
+     * @param exact    loads the page together with its exact count
+     * @param slice    loads the page without counting
+     * @param count    counts every row matching the filter
+     */
+    public <T> PageResponse<T> page(
+            CountMode mode,
+            Pageable pageable,
+            Object countKey,
+            Function<Pageable, Page<T>> exact,
+            Function<Pageable, Slice<T>> slice,
+            LongSupplier count) {
+        return switch (mode) {
+            case EXACT -> PageResponse.from(exact.apply(pageable));
+            case NONE -> PageResponse.from(slice.apply(pageable));
+            case ESTIMATE -> estimate(slice.apply(pageable), countKey, count);
+        };
+    }
+
+    private <T> PageResponse<T> estimate(Slice<T> slice, Object countKey, LongSupplier count) {
+        if (slice.isLast() && (slice.hasContent() || slice.isFirst())) {
+            // The listing ends on this page, so its exact size is known without counting.
+            long total = slice.getPageable().getOffset() + slice.getNumberOfElements();
+            counts.put(countKey, total);
+            return PageResponse.from(new PageImpl<>(slice.getContent(), slice.getPageable(), total));
+        }
+        return PageResponse.estimated(slice, counts.get(countKey, key -> count.getAsLong()));
+    }
+}
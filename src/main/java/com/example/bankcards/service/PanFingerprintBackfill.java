@@ -0,0 +1,135 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.exception.CryptoException;
+import com.example.bankcards.repository.CardRepository;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Fills in {@code pan_fingerprint} for cards issued before the column existed. Runs in the background on a schedule,
+ * walking the remaining rows in id order one batch per transaction and pausing between batches, so startup and
+ * regular traffic are not held up. Each batch holds an advisory lock, so instances do not backfill side by side: an
+ * instance that finds the lock taken leaves the rest to the one holding it and looks again on its next run.
+ * Fingerprints are written with a guarded {@code UPDATE} of that column alone, so concurrent changes to a card are
+ * never overwritten. Cards whose number cannot be decrypted, that duplicate a number already fingerprinted, or that
+ * were changed underneath the backfill are left without a fingerprint. A failing batch is rolled back and logged;
+ * the next run picks up where it ended. Once a walk completes there is nothing left to do until the next start, as
+ * new cards are issued with a fingerprint.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.crypto.fingerprint-backfill", name = "enabled", havingValue = "true")
+public class PanFingerprintBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(PanFingerprintBackfill.class);
+
+    private final CardRepository cardRepository;
+    private final CryptoService cryptoService;
+    private final TransactionTemplate transactionTemplate;
+    private final AppProperties.FingerprintBackfill settings;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean completed;
+
+    public PanFingerprintBackfill(
+            CardRepository cardRepository,
+            CryptoService cryptoService,
+            TransactionTemplate transactionTemplate,
+            AppProperties properties) {
+        this.cardRepository = cardRepository;
+        this.cryptoService = cryptoService;
+        this.transactionTemplate = transactionTemplate;
+        this.settings = properties.getCrypto().getFingerprintBackfill();
+    }
+
+    @Scheduled(fixedDelayString = "${app.crypto.fingerprint-backfill.interval}")
+    public void backfill() {
+        if (completed || !running.compareAndSet(false, true)) {
+            return;
+        }
+        Progress progress = new Progress();
+        try {
+            while (Boolean.TRUE.equals(transactionTemplate.execute(status -> backfillNextBatch(progress)))) {
+                pause();
+            }
+            completed = !progress.lockedOut;
+        } catch (RuntimeException ex) {
+            log.warn("Fingerprint backfill interrupted, will resume on the next run", ex);
+        } finally {
+            running.set(false);
+        }
+        if (progress.lockedOut) {
+            log.info("Fingerprint backfill is running on another instance");
+        }
+        if (progress.updated > 0) {
+            log.info("Backfilled fingerprints for {} cards", progress.updated);
+        }
+        if (progress.skipped > 0) {
+            log.warn("{} cards were left without a fingerprint (undecryptable, duplicate or concurrently changed)",
+                    progress.skipped);
+        }
+    }
+
+    private boolean backfillNextBatch(Progress progress) {
+        if (!cardRepository.tryLockFingerprintBackfill()) {
+            progress.lockedOut = true;
+            return false;
+        }
+        List<Card> cards = cardRepository.findTop500ByPanFingerprintIsNullAndIdGreaterThanOrderByIdAsc(progress.lastId);
+        if (cards.isEmpty()) {
+            return false;
+        }
+        for (Card card : cards) {
+            String fingerprint;
+            try {
+                fingerprint = cryptoService.fingerprint(cryptoService.decrypt(EncryptedData.fromColumns(
+                        card.getSealedNumber(),
+                        card.getEncryptedNumber(),
+                        card.getEncryptionIv(),
+                        card.getKeyVersion())));
+            } catch (CryptoException ex) {
+                progress.skipped++;
+                continue;
+            }
+            if (cardRepository.existsByPanFingerprint(fingerprint)) {
+                progress.skipped++;
+                continue;
+            }
+            if (cardRepository.updatePanFingerprintIfAbsent(card.getId(), fingerprint) == 0) {
+                progress.skipped++;
+                continue;
+            }
+            progress.updated++;
+        }
+        progress.lastId = cards.get(cards.size() - 1).getId();
+        return true;
+    }
+
+    private void pause() {
+        long millis = settings.getChunkPause().toMillis();
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Fingerprint backfill interrupted", ex);
+        }
+    }
+
+    private static final class Progress {
+        private UUID lastId = new UUID(0L, 0L);
+        private long updated;
+        private long skipped;
+        private boolean lockedOut;
+    }
+}
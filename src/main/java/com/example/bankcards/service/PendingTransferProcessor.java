@@ -0,0 +1,120 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.entity.TransferStatus;
+import com.example.bankcards.repository.CardTransferRepository;
+import com.example.bankcards.repository.PendingTransferRef;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+/**
+ * Drains {@link TransferStatus#PENDING} transfers created by {@link TransferService#submitTransfer}. Each poll
+ * takes the oldest batch, groups it by source card and settles every group in its own transaction on a worker
+ * pool, so transfers from the same card are applied together under a single set of row locks. A group that fails
+ * for a transient reason (lock timeout, lost connection) is retried on the next poll; any other failure is narrowed
+ * down by settling the group's transfers one at a time, and a transfer that still cannot be settled on its own is
+ * marked {@link TransferStatus#FAILED} so it cannot block its card indefinitely.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.transfer.async", name = "enabled", havingValue = "true")
+public class PendingTransferProcessor {
+
+    static final String UNSETTLEABLE_REASON = "Transfer could not be settled";
+
+    private static final Logger log = LoggerFactory.getLogger(PendingTransferProcessor.class);
+
+    private final CardTransferRepository transferRepository;
+    private final TransferService transferService;
+    private final AppProperties properties;
+    private final ThreadPoolTaskExecutor executor;
+
+    public PendingTransferProcessor(
+            CardTransferRepository transferRepository,
+            TransferService transferService,
+            AppProperties properties) {
+        this.transferRepository = transferRepository;
+        this.transferService = transferService;
+        this.properties = properties;
+        int workerThreads = properties.getTransfer().getAsync().getWorkerThreads();
+        this.executor = new ThreadPoolTaskExecutor();
+        this.executor.setCorePoolSize(workerThreads);
+        this.executor.setMaxPoolSize(workerThreads);
+        this.executor.setThreadNamePrefix("transfer-settlement-");
+        this.executor.initialize();
+    }
+
+    @Scheduled(fixedDelayString = "${app.transfer.async.poll-interval}")
+    public void drainPendingTransfers() {
+        int batchSize = properties.getTransfer().getAsync().getBatchSize();
+        List<PendingTransferRef> pending = transferRepository
+                .findRefsByStatus(TransferStatus.PENDING, PageRequest.of(0, batchSize));
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, List<UUID>> bySourceCard = new LinkedHashMap<>();
+        for (PendingTransferRef ref : pending) {
+            bySourceCard.computeIfAbsent(ref.sourceCardId(), id -> new ArrayList<>()).add(ref.id());
+        }
+        List<CompletableFuture<Void>> settlements = new ArrayList<>();
+        for (List<UUID> transferIds : bySourceCard.values()) {
+            settlements.add(CompletableFuture.runAsync(() -> settle(transferIds), executor));
+        }
+        CompletableFuture.allOf(settlements.toArray(new CompletableFuture[0])).join();
+        log.debug("Processed {} pending transfers from {} cards", pending.size(), bySourceCard.size());
+    }
+
+    private void settle(List<UUID> transferIds) {
+        try {
+            transferService.settlePendingTransfers(transferIds);
+        } catch (RuntimeException ex) {
+            if (isTransient(ex)) {
+                log.warn("Failed to settle pending transfers {}, will retry on the next poll", transferIds, ex);
+            } else if (transferIds.size() > 1) {
+                log.warn("Failed to settle pending transfers {} together, settling them one at a time", transferIds, ex);
+                for (UUID transferId : transferIds) {
+                    settle(List.of(transferId));
+                }
+            } else {
+                fail(transferIds.get(0), ex);
+            }
+        }
+    }
+
+    private void fail(UUID transferId, RuntimeException cause) {
+        log.error("Cannot settle pending transfer {}, marking it as failed", transferId, cause);
+        try {
+            transferService.failPendingTransfer(transferId, UNSETTLEABLE_REASON);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to mark pending transfer {} as failed, will retry on the next poll", transferId, ex);
+        }
+    }
+
+    private static boolean isTransient(RuntimeException ex) {
+        return ex instanceof TransientDataAccessException
+                || ex instanceof RecoverableDataAccessException
+                || ex instanceof DataAccessResourceFailureException
+                || ex instanceof CannotCreateTransactionException;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
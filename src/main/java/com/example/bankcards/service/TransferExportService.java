@@ -0,0 +1,101 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.transfer.TransferExportFormat;
+import com.example.bankcards.dto.transfer.TransferResponse;
+import com.example.bankcards.repository.CardTransferRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Writes a user's complete transfer history to an output stream. Rows are read from a database cursor and written
+ * one at a time, so memory use does not depend on the size of the history.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class TransferExportService {
+
+    static final String CSV_HEADER =
+            "id,sourceCardId,targetCardId,amount,status,description,createdAt,failureReason";
+
+    /** Leading characters that make spreadsheet applications evaluate a cell as a formula. */
+    private static final String FORMULA_TRIGGERS = "=+-@\t\r";
+
+    private final CardTransferRepository transferRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    public void export(UUID userId, TransferExportFormat format, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        try (Stream<TransferResponse> transfers = transferRepository.streamResponsesByOwnerId(userId)) {
+            Iterator<TransferResponse> rows = transfers.iterator();
+            if (format == TransferExportFormat.CSV) {
+                writeCsv(rows, writer);
+            } else {
+                writeNdjson(rows, writer);
+            }
+        }
+        writer.flush();
+    }
+
+    private void writeCsv(Iterator<TransferResponse> rows, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        while (rows.hasNext()) {
+            TransferResponse row = rows.next();
+            writer.write(String.valueOf(row.id()));
+            writer.write(',');
+            writer.write(String.valueOf(row.sourceCardId()));
+            writer.write(',');
+            writer.write(String.valueOf(row.targetCardId()));
+            writer.write(',');
+            writer.write(row.amount().toPlainString());
+            writer.write(',');
+            writer.write(row.status().name());
+            writer.write(',');
+            writer.write(csvField(row.description()));
+            writer.write(',');
+            writer.write(String.valueOf(row.createdAt()));
+            writer.write(',');
+            writer.write(csvField(row.failureReason()));
+            writer.write('\n');
+        }
+    }
+
+    private void writeNdjson(Iterator<TransferResponse> rows, Writer writer) throws IOException {
+        ObjectWriter rowWriter = objectMapper.writerFor(TransferResponse.class);
+        while (rows.hasNext()) {
+            writer.write(rowWriter.writeValueAsString(rows.next()));
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Quotes a value per RFC 4180 when it contains a separator, a quote or a line break. Values a spreadsheet would
+     * read as a formula are prefixed with {@code '} first, as recommended by OWASP for CSV injection.
+     */
+    static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (!value.isEmpty() && FORMULA_TRIGGERS.indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
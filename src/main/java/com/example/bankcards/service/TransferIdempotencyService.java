@@ -0,0 +1,119 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.dto.transfer.TransferRequest;
+import com.example.bankcards.dto.transfer.TransferResponse;
+import com.example.bankcards.entity.CardTransfer;
+import com.example.bankcards.entity.TransferIdempotencyKey;
+import com.example.bankcards.entity.TransferStatus;
+import com.example.bankcards.exception.BusinessException;
+import com.example.bankcards.mapper.TransferMapper;
+import com.example.bankcards.repository.TransferIdempotencyKeyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Remembers which transfer was created for a client supplied {@code Idempotency-Key}, so retried requests are
+ * answered with the original result instead of moving money again. Keys are persisted in a uniquely indexed
+ * table; recently used keys of settled transfers are additionally kept in a bounded in-memory cache so replays
+ * do not touch the database or the card locks at all. Responses of {@link TransferStatus#PENDING} transfers are not
+ * cached, because settlement changes their status after the fact; their replays re-read the transfer instead.
+ */
+@Service
+@Transactional(readOnly = true)
+public class TransferIdempotencyService {
+
+    private final TransferIdempotencyKeyRepository keyRepository;
+    private final TransferMapper transferMapper;
+    private final Cache<ReplayKey, TransferResponse> responses;
+
+    public TransferIdempotencyService(
+            TransferIdempotencyKeyRepository keyRepository,
+            TransferMapper transferMapper,
+            AppProperties properties) {
+        this.keyRepository = keyRepository;
+        this.transferMapper = transferMapper;
+        AppProperties.Idempotency idempotency = properties.getTransfer().getIdempotency();
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(idempotency.getCacheMaximumSize())
+                .expireAfterWrite(idempotency.getCacheTtl())
+                .build();
+    }
+
+    /**
+     * Returns the response of the transfer previously created with the given key, if any.
+     *
+     * @throws BusinessException if the key was used for a transfer with different parameters
+     */
+    public Optional<TransferResponse> findReplay(UUID userId, String idempotencyKey, TransferRequest request) {
+        ReplayKey replayKey = new ReplayKey(userId, idempotencyKey);
+        TransferResponse cached = responses.getIfPresent(replayKey);
+        if (cached != null) {
+            return Optional.of(ensureSameTransfer(cached, request));
+        }
+        return keyRepository
+                .findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                .map(key -> {
+                    TransferResponse response = transferMapper.toResponse(key.getTransfer());
+                    cache(replayKey, response);
+                    return ensureSameTransfer(response, request);
+                });
+    }
+
+    /**
+     * Binds the key to a freshly created transfer. Must run in the transaction that created the transfer, so
+     * that a concurrent request racing on the same key fails on the unique index and rolls back its transfer.
+     */
+    @Transactional
+    public void register(UUID userId, String idempotencyKey, CardTransfer transfer, TransferResponse response) {
+        TransferIdempotencyKey key = new TransferIdempotencyKey();
+        key.setUserId(userId);
+        key.setIdempotencyKey(idempotencyKey);
+        key.setTransfer(transfer);
+        try {
+            keyRepository.saveAndFlush(key);
+        } catch (DataIntegrityViolationException ex) {
+            throw new BusinessException("Idempotency key has already been used");
+        }
+        cacheAfterCommit(new ReplayKey(userId, idempotencyKey), response);
+    }
+
+    private void cacheAfterCommit(ReplayKey replayKey, TransferResponse response) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache(replayKey, response);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache(replayKey, response);
+            }
+        });
+    }
+
+    private void cache(ReplayKey replayKey, TransferResponse response) {
+        if (response.status() != TransferStatus.PENDING) {
+            responses.put(replayKey, response);
+        }
+    }
+
+    private TransferResponse ensureSameTransfer(TransferResponse response, TransferRequest request) {
+        boolean same = response.sourceCardId().equals(request.sourceCardId())
+                && response.targetCardId().equals(request.targetCardId())
+                && response.amount().compareTo(request.amount()) == 0;
+        if (!same) {
+            throw new BusinessException("Idempotency key has already been used for a different transfer");
+        }
+        return response;
+    }
+
+    private record ReplayKey(UUID userId, String idempotencyKey) {
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.dto.common.CursorPage;
+import com.example.bankcards.dto.common.CountMode;
 import com.example.bankcards.dto.common.PageResponse;
 import com.example.bankcards.dto.transfer.TransferRequest;
 import com.example.bankcards.dto.transfer.TransferResponse;
@@ -8,63 +11,340 @@ import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.CardTransfer;
 import com.example.bankcards.entity.TransferStatus;
 import com.example.bankcards.exception.BusinessException;
+import com.example.bankcards.exception.ResourceNotFoundException;
 import com.example.bankcards.mapper.TransferMapper;
 import com.example.bankcards.repository.CardTransferRepository;
+import com.example.bankcards.util.KeysetCursor;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class TransferService {
 
+    static final String OPTIMISTIC_RETRY_METRIC = "bankcards.transfer.optimistic.retries";
+    static final String OPTIMISTIC_EXHAUSTED_METRIC = "bankcards.transfer.optimistic.exhausted";
+
     private final CardService cardService;
     private final CardTransferRepository transferRepository;
     private final TransferMapper transferMapper;
+    private final TransferIdempotencyService idempotencyService;
+    private final LedgerService ledgerService;
+    private final AppProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ListingCounts listingCounts;
 
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public TransferResponse transferBetweenOwnCards(UUID userId, TransferRequest request) {
-        if (request.sourceCardId().equals(request.targetCardId())) {
-            throw new BusinessException("Source and target cards must differ");
+        return transferBetweenOwnCards(userId, request, null);
+    }
+
+    /**
+     * Transfers money between two cards of the user using the configured {@link TransferStrategy}. When an
+     * idempotency key is supplied and a transfer was already created with it, the original result is returned
+     * without locking the cards again. The same happens when a concurrent request with the same key commits first:
+     * this request then fails on the key's unique index, or on the balance the original already moved, and is
+     * answered with the original transfer once its own transaction has rolled back.
+     * <p>
+     * Each attempt runs in its own transaction so that {@link TransferStrategy#OPTIMISTIC} can retry a transfer
+     * that lost a version check. Retries are counted in {@value #OPTIMISTIC_RETRY_METRIC}, transfers that ran
+     * out of attempts in {@value #OPTIMISTIC_EXHAUSTED_METRIC}.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TransferResponse transferBetweenOwnCards(UUID userId, TransferRequest request, String idempotencyKey) {
+        validateDistinctCards(request);
+        try {
+            return executeWithRetries(userId, request, idempotencyKey);
+        } catch (BusinessException ex) {
+            if (idempotencyKey == null) {
+                throw ex;
+            }
+            return findReplay(userId, request, idempotencyKey).orElseThrow(() -> ex);
+        }
+    }
+
+    private TransferResponse executeWithRetries(UUID userId, TransferRequest request, String idempotencyKey) {
+        if (properties.getTransfer().getStrategy() != TransferStrategy.OPTIMISTIC) {
+            return transactionTemplate.execute(status -> executeTransfer(userId, request, idempotencyKey));
+        }
+        AppProperties.Optimistic retry = properties.getTransfer().getOptimistic();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> executeTransfer(userId, request, idempotencyKey));
+            } catch (OptimisticLockingFailureException ex) {
+                if (attempt >= retry.getMaxAttempts()) {
+                    meterRegistry.counter(OPTIMISTIC_EXHAUSTED_METRIC).increment();
+                    throw new BusinessException("Card was modified concurrently, please retry");
+                }
+                meterRegistry.counter(OPTIMISTIC_RETRY_METRIC).increment();
+                backOff(retry, attempt);
+            }
+        }
+    }
+
+    /**
+     * Accepts a transfer for asynchronous settlement. Ownership and card state are checked up front without
+     * taking any row locks; the balances are moved later by {@link PendingTransferProcessor}, which moves the
+     * transfer to {@link TransferStatus#COMPLETED} or {@link TransferStatus#FAILED}.
+     */
+    @Transactional
+    public TransferResponse submitTransfer(UUID userId, TransferRequest request, String idempotencyKey) {
+        if (!properties.getTransfer().getAsync().isEnabled()) {
+            throw new BusinessException("Asynchronous transfers are disabled");
+        }
+        validateDistinctCards(request);
+        Optional<TransferResponse> replay = findReplay(userId, request, idempotencyKey);
+        if (replay.isPresent()) {
+            return replay.get();
+        }
+        Card sourceCard = cardService.requireCard(request.sourceCardId());
+        Card targetCard = cardService.requireCard(request.targetCardId());
+
+        validateOwnership(userId, sourceCard, targetCard);
+        ensureTransferable(sourceCard);
+        ensureTransferable(targetCard);
+
+        return saveTransfer(userId, request, idempotencyKey, sourceCard, targetCard, TransferStatus.PENDING);
+    }
+
+    /**
+     * Settles pending transfers in a single transaction. All cards involved are locked with one ordered
+     * statement, then the transfers are applied in submission order. A transfer that can no longer be
+     * executed is marked as failed without affecting the others. Transfers already locked by another worker
+     * or no longer pending are skipped.
+     */
+    @Transactional
+    public void settlePendingTransfers(Collection<UUID> transferIds) {
+        List<CardTransfer> transfers = transferRepository.findForSettlement(transferIds, TransferStatus.PENDING);
+        if (transfers.isEmpty()) {
+            return;
+        }
+        Set<UUID> cardIds = new HashSet<>();
+        for (CardTransfer transfer : transfers) {
+            cardIds.add(transfer.getSourceCard().getId());
+            cardIds.add(transfer.getTargetCard().getId());
+        }
+        Map<UUID, Card> cards = cardService.lockCards(cardIds);
+
+        for (CardTransfer transfer : transfers) {
+            Card sourceCard = cards.get(transfer.getSourceCard().getId());
+            Card targetCard = cards.get(transfer.getTargetCard().getId());
+            try {
+                if (sourceCard == null || targetCard == null) {
+                    throw new BusinessException("Card not found");
+                }
+                validateOwnership(sourceCard.getOwner().getId(), sourceCard, targetCard);
+                ensureTransferable(sourceCard);
+                ensureTransferable(targetCard);
+                ensureSufficientFunds(sourceCard, transfer.getAmount());
+                moveFunds(sourceCard, targetCard, transfer.getAmount());
+                transfer.setStatus(TransferStatus.COMPLETED);
+                ledgerService.recordTransfer(transfer);
+            } catch (BusinessException ex) {
+                transfer.setStatus(TransferStatus.FAILED);
+                transfer.setFailureReason(ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Marks a pending transfer as failed without touching its cards. Used for a transfer whose settlement keeps
+     * failing for reasons other than its own business rules, so it stops holding back the other transfers of its
+     * source card. A transfer locked by a settlement worker or no longer pending is left alone.
+     */
+    @Transactional
+    public void failPendingTransfer(UUID transferId, String reason) {
+        for (CardTransfer transfer : transferRepository.findForSettlement(List.of(transferId), TransferStatus.PENDING)) {
+            transfer.setStatus(TransferStatus.FAILED);
+            transfer.setFailureReason(reason);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public TransferResponse getTransfer(UUID transferId, UUID userId) {
+        CardTransfer transfer = transferRepository
+                .findByIdAndSourceCardOwnerId(transferId, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Transfer not found"));
+        return transferMapper.toResponse(transfer);
+    }
+
+    @Transactional(readOnly = true)
+    public TransferResponse getTransfer(UUID transferId) {
+        CardTransfer transfer = transferRepository
+                .findById(transferId)
+                .orElseThrow(() -> new ResourceNotFoundException("Transfer not found"));
+        return transferMapper.toResponse(transfer);
+    }
+
+    @Transactional(readOnly = true)
+    public PageResponse<TransferResponse> getUserTransfers(UUID userId, Pageable pageable, CountMode count) {
+        return listingCounts.page(
+                count,
+                pageable,
+                new TransferCountKey(userId),
+                page -> transferRepository.findResponsesByOwnerId(userId, page),
+                page -> transferRepository.findResponseSliceByOwnerId(userId, page),
+                () -> transferRepository.countByOwnerId(userId));
+    }
+
+    /**
+     * Returns the user's sent and received transfers, newest first, using keyset pagination. Pass the
+     * {@code nextCursor} of the previous page to continue; a {@code null} cursor starts from the newest transfer.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<TransferResponse> getUserTransferHistory(UUID userId, String cursor, int size) {
+        List<CardTransfer> transfers;
+        if (cursor == null) {
+            transfers = transferRepository.findHistory(userId, size + 1);
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            transfers = transferRepository.findHistoryAfter(userId, position.createdAt(), position.id(), size + 1);
+        }
+        String nextCursor = null;
+        if (transfers.size() > size) {
+            transfers = transfers.subList(0, size);
+            CardTransfer last = transfers.get(size - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPage<>(transfers.stream().map(transferMapper::toResponse).toList(), nextCursor);
+    }
+
+    private TransferResponse executeTransfer(UUID userId, TransferRequest request, String idempotencyKey) {
+        Optional<TransferResponse> replay = findReplay(userId, request, idempotencyKey);
+        if (replay.isPresent()) {
+            return replay.get();
+        }
+        return switch (properties.getTransfer().getStrategy()) {
+            case PESSIMISTIC -> transferWithRowLocks(userId, request, idempotencyKey);
+            case CONDITIONAL_UPDATE -> transferWithGuardedUpdates(userId, request, idempotencyKey);
+            case OPTIMISTIC -> transferWithVersionCheck(userId, request, idempotencyKey);
+        };
+    }
+
+    private TransferResponse transferWithRowLocks(UUID userId, TransferRequest request, String idempotencyKey) {
+        CardPair cards = cardService.lockCardPair(request.sourceCardId(), request.targetCardId());
+        Card sourceCard = cards.source();
+        Card targetCard = cards.target();
+        // A retry racing with the original request waits on the card locks above and sees its key here.
+        Optional<TransferResponse> replay = findReplay(userId, request, idempotencyKey);
+        if (replay.isPresent()) {
+            return replay.get();
         }
-        Card sourceCard = cardService.lockCard(request.sourceCardId());
-        Card targetCard = cardService.lockCard(request.targetCardId());
 
         validateOwnership(userId, sourceCard, targetCard);
         ensureTransferable(sourceCard);
         ensureTransferable(targetCard);
 
         BigDecimal amount = request.amount();
-        if (sourceCard.getBalance().compareTo(amount) < 0) {
-            throw new BusinessException("Insufficient funds on the source card");
+        ensureSufficientFunds(sourceCard, amount);
+        moveFunds(sourceCard, targetCard, amount);
+
+        return saveTransfer(userId, request, idempotencyKey, sourceCard, targetCard, TransferStatus.COMPLETED);
+    }
+
+    private TransferResponse transferWithGuardedUpdates(
+            UUID userId, TransferRequest request, String idempotencyKey) {
+        cardService.transferGuarded(userId, request.sourceCardId(), request.targetCardId(), request.amount());
+        Card sourceCard = cardService.getReference(request.sourceCardId());
+        Card targetCard = cardService.getReference(request.targetCardId());
+        return saveTransfer(userId, request, idempotencyKey, sourceCard, targetCard, TransferStatus.COMPLETED);
+    }
+
+    /**
+     * Applies the transfer to unlocked cards. A concurrent change to either card makes the version-checked
+     * update fail at flush time, which rolls back this attempt. A concurrent retry with the same idempotency
+     * key fails on the key's unique index instead and is answered by {@link #transferBetweenOwnCards}.
+     */
+    private TransferResponse transferWithVersionCheck(UUID userId, TransferRequest request, String idempotencyKey) {
+        CardPair cards = cardService.readCardPair(request.sourceCardId(), request.targetCardId());
+        Card sourceCard = cards.source();
+        Card targetCard = cards.target();
+
+        validateOwnership(userId, sourceCard, targetCard);
+        ensureTransferable(sourceCard);
+        ensureTransferable(targetCard);
+
+        BigDecimal amount = request.amount();
+        ensureSufficientFunds(sourceCard, amount);
+        moveFunds(sourceCard, targetCard, amount);
+
+        return saveTransfer(userId, request, idempotencyKey, sourceCard, targetCard, TransferStatus.COMPLETED);
+    }
+
+    /**
+     * Sleeps for a random time up to an exponentially growing cap ("full jitter"), so that transfers that
+     * collided on the same card do not collide again on their next attempt.
+     */
+    private void backOff(AppProperties.Optimistic retry, int attempt) {
+        long initial = retry.getInitialBackoff().toMillis();
+        long cap = Math.min(retry.getMaxBackoff().toMillis(), initial << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Transfer was interrupted, please retry");
         }
+    }
 
-        cardService.updateBalance(sourceCard, sourceCard.getBalance().subtract(amount));
-        cardService.updateBalance(targetCard, targetCard.getBalance().add(amount));
+    private Optional<TransferResponse> findReplay(UUID userId, TransferRequest request, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return Optional.empty();
+        }
+        return idempotencyService.findReplay(userId, idempotencyKey, request);
+    }
 
+    private TransferResponse saveTransfer(
+            UUID userId,
+            TransferRequest request,
+            String idempotencyKey,
+            Card sourceCard,
+            Card targetCard,
+            TransferStatus status) {
         CardTransfer transfer = new CardTransfer();
         transfer.setSourceCard(sourceCard);
         transfer.setTargetCard(targetCard);
-        transfer.setAmount(amount);
-        transfer.setStatus(TransferStatus.COMPLETED);
+        transfer.setAmount(request.amount());
+        transfer.setStatus(status);
         transfer.setDescription(request.description());
         transferRepository.save(transfer);
+        if (status == TransferStatus.COMPLETED) {
+            ledgerService.recordTransfer(transfer);
+        }
 
-        return transferMapper.toResponse(transfer);
+        TransferResponse response = transferMapper.toResponse(transfer);
+        if (idempotencyKey != null) {
+            idempotencyService.register(userId, idempotencyKey, transfer, response);
+        }
+        return response;
     }
 
-    @Transactional(readOnly = true)
-    public PageResponse<TransferResponse> getUserTransfers(UUID userId, Pageable pageable) {
-        Page<CardTransfer> page = transferRepository
-                .findBySourceCardOwnerIdOrTargetCardOwnerId(userId, userId, pageable);
-        Page<TransferResponse> mapped = page.map(transferMapper::toResponse);
-        return PageResponse.from(mapped);
+    private void moveFunds(Card sourceCard, Card targetCard, BigDecimal amount) {
+        cardService.updateBalance(sourceCard, sourceCard.getBalance().subtract(amount));
+        cardService.updateBalance(targetCard, targetCard.getBalance().add(amount));
+    }
+
+    private void validateDistinctCards(TransferRequest request) {
+        if (request.sourceCardId().equals(request.targetCardId())) {
+            throw new BusinessException("Source and target cards must differ");
+        }
     }
 
     private void validateOwnership(UUID userId, Card sourceCard, Card targetCard) {
@@ -81,4 +361,13 @@ public class TransferService {
             throw new BusinessException("Card is expired");
         }
     }
+
+    private void ensureSufficientFunds(Card sourceCard, BigDecimal amount) {
+        if (sourceCard.getBalance().compareTo(amount) < 0) {
+            throw new BusinessException("Insufficient funds on the source card");
+        }
+    }
+
+    private record TransferCountKey(UUID userId) {
+    }
 }
@@ -0,0 +1,25 @@
+package com.example.bankcards.service;
+
+/**
+ * How {@link TransferService} serializes concurrent balance changes on the same cards.
+ */
+public enum TransferStrategy {
+
+    /**
+     * Locks both cards with {@code SELECT ... FOR UPDATE}, validates them in Java and lets Hibernate flush the
+     * new balances.
+     */
+    PESSIMISTIC,
+
+    /**
+     * Debits and credits with two guarded {@code UPDATE} statements and decides the outcome from the affected
+     * row counts. Row locks are only held from the first update until commit.
+     */
+    CONDITIONAL_UPDATE,
+
+    /**
+     * Reads both cards without locks and relies on the {@code version} check of the flushed updates. A
+     * transfer that loses the race is retried in a new transaction with jittered backoff.
+     */
+    OPTIMISTIC
+}
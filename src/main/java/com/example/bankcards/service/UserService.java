@@ -5,12 +5,13 @@ import com.example.bankcards.entity.UserAccount;
 import com.example.bankcards.exception.BusinessException;
 import com.example.bankcards.exception.ResourceNotFoundException;
 import com.example.bankcards.repository.UserAccountRepository;
-import java.time.LocalDateTime;
+import com.example.bankcards.security.UserAccountChanged;
 import java.util.EnumSet;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,6 +21,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class UserService {
 
     private final UserAccountRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public UserAccount getById(UUID id) {
         return userRepository
@@ -49,29 +51,33 @@ public class UserService {
                 ? EnumSet.noneOf(Role.class)
                 : EnumSet.copyOf(roles);
         user.setRoles(roleSet);
-        return userRepository.save(user);
+        UserAccount saved = userRepository.save(user);
+        publishChange(saved);
+        return saved;
     }
 
     @Transactional
     public UserAccount update(UserAccount user) {
-        return userRepository.save(user);
+        UserAccount saved = userRepository.save(user);
+        publishChange(saved);
+        return saved;
     }
 
     @Transactional
-    public void updateLastLogin(UUID userId) {
-        userRepository
-                .findById(userId)
-                .ifPresent(user -> {
-                    user.setLastLoginAt(LocalDateTime.now());
-                    userRepository.save(user);
-                });
+    public void updatePasswordHash(UUID userId, String passwordHash) {
+        UserAccount user = getById(userId);
+        user.setPasswordHash(passwordHash);
+        update(user);
     }
 
     @Transactional
     public void delete(UUID id) {
-        if (!userRepository.existsById(id)) {
-            throw new ResourceNotFoundException("User not found");
-        }
-        userRepository.deleteById(id);
+        UserAccount user = getById(id);
+        userRepository.delete(user);
+        publishChange(user);
+    }
+
+    private void publishChange(UserAccount user) {
+        eventPublisher.publishEvent(new UserAccountChanged(user.getId(), user.getUsername()));
     }
 }
@@ -0,0 +1,58 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.dto.card.CardSortKey;
+import com.example.bankcards.exception.BusinessException;
+import com.example.bankcards.repository.CardListingRow;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Position in a card listing ordered by {@code (sortKey, id)} in one direction. The token records the ordering it
+ * was issued for, so it cannot be replayed against a listing sorted differently.
+ */
+public record CardKeysetCursor(CardSortKey sortKey, Sort.Direction direction, Comparable<?> value, UUID id) {
+
+    private static final String SEPARATOR = "|";
+
+    public static CardKeysetCursor after(CardListingRow row, CardSortKey sortKey, Sort.Direction direction) {
+        Comparable<?> value = switch (sortKey) {
+            case CREATED_AT -> row.createdAt();
+            case BALANCE -> row.balance();
+        };
+        return new CardKeysetCursor(sortKey, direction, value, row.id());
+    }
+
+    public String encode() {
+        String formattedValue = value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+        String raw = String.join(SEPARATOR, sortKey.name(), direction.name(), formattedValue, id.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws BusinessException if the token is malformed or was issued for another ordering
+     */
+    public static CardKeysetCursor decode(String token, CardSortKey sortKey, Sort.Direction direction) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 4) {
+                throw new BusinessException("Invalid cursor");
+            }
+            if (sortKey != CardSortKey.valueOf(parts[0]) || direction != Sort.Direction.valueOf(parts[1])) {
+                throw new BusinessException("Cursor was issued for a different sort order");
+            }
+            Comparable<?> value = switch (sortKey) {
+                case CREATED_AT -> LocalDateTime.parse(parts[2]);
+                case BALANCE -> new BigDecimal(parts[2]);
+            };
+            return new CardKeysetCursor(sortKey, direction, value, UUID.fromString(parts[3]));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new BusinessException("Invalid cursor");
+        }
+    }
+}
@@ -6,6 +6,10 @@ public final class CardMaskingUtil {
     }
 
     public static String mask(String cardNumber) {
+        return "**** **** **** " + lastFour(cardNumber);
+    }
+
+    public static String lastFour(String cardNumber) {
         if (cardNumber == null) {
             throw new IllegalArgumentException("Card number cannot be null");
         }
@@ -13,7 +17,6 @@ public final class CardMaskingUtil {
         if (digitsOnly.length() < 4) {
             throw new IllegalArgumentException("Card number must contain at least 4 digits");
         }
-        String lastFour = digitsOnly.substring(digitsOnly.length() - 4);
-        return "**** **** **** " + lastFour;
+        return digitsOnly.substring(digitsOnly.length() - 4);
     }
 }
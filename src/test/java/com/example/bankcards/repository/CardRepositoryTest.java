@@ -0,0 +1,196 @@
+package com.example.bankcards.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.bankcards.dto.card.CardFilterRequest;
+import com.example.bankcards.dto.card.CardResponse;
+import com.example.bankcards.dto.card.CardSortKey;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.UserAccount;
+import com.example.bankcards.mapper.CardMapper;
+import com.example.bankcards.util.CardKeysetCursor;
+import jakarta.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class CardRepositoryTest {
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private UserAccount owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = user("search-owner");
+        card(owner, "1234", BigDecimal.TEN);
+        card(owner, "5123", BigDecimal.ONE);
+        card(owner, "9876", BigDecimal.TEN);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void withFilter_shouldMatchFullLastFourExactly() {
+        assertEquals(List.of("1234"), search("**** **** **** 1234"));
+        assertEquals(List.of("1234"), search("1234"));
+    }
+
+    @Test
+    void withFilter_shouldMatchPartialDigitsAnywhereInLastFour() {
+        assertEquals(List.of("1234", "5123"), search("123"));
+        assertEquals(List.of("9876"), search("**** 87"));
+        assertEquals(List.of("5123"), search("5*3"));
+    }
+
+    @Test
+    void withFilter_shouldIgnoreMaskOnlyPattern() {
+        assertEquals(List.of("1234", "5123", "9876"), search("**** ****"));
+    }
+
+    @Test
+    void findListingRowSlice_shouldReadFromTheOffsetWithoutCounting() {
+        Specification<Card> spec = CardSpecifications.withFilter(null);
+
+        Slice<CardListingRow> second = cardRepository.findListingRowSlice(spec, PageRequest.of(1, 1, Sort.by("last4")));
+        Slice<CardListingRow> third = cardRepository.findListingRowSlice(spec, PageRequest.of(2, 1, Sort.by("last4")));
+
+        assertEquals(List.of("5123"), lastDigits(second.getContent()));
+        assertTrue(second.hasNext());
+        assertEquals(List.of("9876"), lastDigits(third.getContent()));
+        assertFalse(third.hasNext());
+    }
+
+    @Test
+    void findListingRows_shouldReadEachPageWithOwnersInOneStatement() {
+        for (int i = 0; i < 4; i++) {
+            UserAccount other = user("other-owner-" + i);
+            card(other, "100" + i, BigDecimal.ONE);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        Page<CardResponse> page = cardRepository
+                .findListingRows(CardSpecifications.withFilter(null), PageRequest.of(0, 5, Sort.by("last4")))
+                .map(new CardMapper()::toResponse);
+
+        assertEquals(7L, page.getTotalElements());
+        assertEquals(5, page.getContent().stream().map(CardResponse::ownerFullName).distinct().count());
+        // One statement for the rows and their owners, one for the total.
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getCollectionLoadCount());
+    }
+
+    @Test
+    void after_shouldWalkEveryCardOnceAcrossTiedSortValues() {
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            List<String> all = lastDigits(scrollPage(CardSortKey.BALANCE, direction, null, 10));
+            List<String> walked = new ArrayList<>();
+            CardKeysetCursor cursor = null;
+            List<CardListingRow> page;
+            do {
+                page = scrollPage(CardSortKey.BALANCE, direction, cursor, 1);
+                walked.addAll(lastDigits(page));
+                cursor = page.isEmpty()
+                        ? null
+                        : CardKeysetCursor.decode(
+                                CardKeysetCursor.after(page.get(0), CardSortKey.BALANCE, direction).encode(),
+                                CardSortKey.BALANCE,
+                                direction);
+            } while (!page.isEmpty());
+
+            assertEquals(3, all.size());
+            assertEquals(all, walked);
+        }
+    }
+
+    @Test
+    void flushOfCardLoadedBeforeANumberRewriteShouldKeepTheRewrittenNumber() {
+        Card stale = cardRepository.findAll(Sort.by("last4")).get(0);
+        entityManager.createNativeQuery("UPDATE cards SET card_number_sealed = ?1, key_version = 2 WHERE id = ?2")
+                .setParameter(1, "rewritten".getBytes())
+                .setParameter(2, stale.getId())
+                .executeUpdate();
+
+        stale.setStatus(CardStatus.BLOCKED);
+        entityManager.flush();
+        entityManager.clear();
+
+        Card reloaded = cardRepository.findById(stale.getId()).orElseThrow();
+        assertEquals(CardStatus.BLOCKED, reloaded.getStatus());
+        assertEquals("rewritten", new String(reloaded.getSealedNumber()));
+        assertEquals(2, reloaded.getKeyVersion());
+    }
+
+    private List<CardListingRow> scrollPage(
+            CardSortKey sortKey, Sort.Direction direction, CardKeysetCursor cursor, int size) {
+        CardFilterRequest filter = new CardFilterRequest();
+        filter.setOwnerId(owner.getId());
+        Specification<Card> spec = CardSpecifications.withFilter(filter).and(CardSpecifications.after(cursor));
+        return cardRepository.findListingRows(spec, Sort.by(direction, sortKey.property(), "id"), size);
+    }
+
+    private static List<String> lastDigits(List<CardListingRow> rows) {
+        return rows.stream().map(row -> row.maskedNumber().substring(15)).toList();
+    }
+
+    private List<String> search(String maskedNumber) {
+        CardFilterRequest filter = new CardFilterRequest();
+        filter.setOwnerId(owner.getId());
+        filter.setMaskedNumber(maskedNumber);
+        return cardRepository.findAll(CardSpecifications.withFilter(filter), Sort.by("last4")).stream()
+                .map(Card::getLast4)
+                .toList();
+    }
+
+    private UserAccount user(String username) {
+        UserAccount user = new UserAccount();
+        user.setUsername(username);
+        user.setPasswordHash("hash");
+        user.setFullName("Full name of " + username);
+        user.setRoles(Set.of(Role.USER));
+        entityManager.persist(user);
+        return user;
+    }
+
+    private void card(UserAccount owner, String lastDigits, BigDecimal balance) {
+        Card card = new Card();
+        card.setOwner(owner);
+        card.setMaskedNumber("**** **** **** " + lastDigits);
+        card.setLast4(lastDigits);
+        card.setSealedNumber(lastDigits.getBytes());
+        card.setStatus(CardStatus.ACTIVE);
+        card.setExpirationDate(LocalDate.now().plusYears(1));
+        card.setBalance(balance);
+        entityManager.persist(card);
+    }
+}
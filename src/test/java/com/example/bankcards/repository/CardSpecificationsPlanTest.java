@@ -0,0 +1,160 @@
+package com.example.bankcards.repository;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.bankcards.dto.card.CardFilterRequest;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.support.PostgresTestDatabase;
+import jakarta.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Runs the default card listing for every combination of {@link CardSpecifications#withFilter} filters against a
+ * seeded PostgreSQL schema and fails if any of them scans the {@code cards} table or fetches more than
+ * {@link #ROW_BUDGET} of its rows for one page. Each query is executed with its real parameters, and what it read is
+ * taken from {@code pg_stat_xact_user_tables}. One owner holds a quarter of the cards so that owner filters are not
+ * selective on their own. Only the row statement is checked: counting every card behind a broad filter has to read
+ * them all, which is what {@code count=estimate} and {@code count=none} are for.
+ *
+ * <p>Runs against the PostgreSQL database provided by {@link PostgresTestDatabase}.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIf(value = "com.example.bankcards.support.PostgresTestDatabase#isAvailable",
+        disabledReason = "Needs -Dit.db.url or Docker")
+class CardSpecificationsPlanTest {
+
+    private static final String SCHEMA = "plan_test_" + UUID.randomUUID().toString().replace("-", "");
+    private static final int OWNERS = 1_000;
+    private static final int CARDS = 50_000;
+    private static final long ROW_BUDGET = 500;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws SQLException {
+        PostgresTestDatabase.register(registry, SCHEMA);
+    }
+
+    @AfterAll
+    static void dropSchema() throws SQLException {
+        PostgresTestDatabase.execute("DROP SCHEMA " + SCHEMA + " CASCADE");
+    }
+
+    @Test
+    void everyFilterCombinationShouldReadOnlyASmallPartOfCards() {
+        seed();
+        UUID ownerId = (UUID) entityManager
+                .createNativeQuery("SELECT owner_id FROM cards GROUP BY owner_id ORDER BY count(*) DESC LIMIT 1")
+                .getSingleResult();
+
+        List<String> expensive = new ArrayList<>();
+        for (CardFilterRequest filter : filterCombinations(ownerId)) {
+            CardReads before = cardReads();
+            cardRepository.findListingRowSlice(
+                    CardSpecifications.withFilter(filter),
+                    PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "createdAt", "id")));
+            CardReads after = cardReads();
+            long rows = after.rows() - before.rows();
+            if (after.sequentialScans() > before.sequentialScans() || rows > ROW_BUDGET) {
+                expensive.add(describe(filter) + " read " + rows + " rows");
+            }
+        }
+
+        assertTrue(expensive.isEmpty(), "Card listings reading too much of the table: " + expensive);
+    }
+
+    private void seed() {
+        entityManager.createNativeQuery("""
+                INSERT INTO users (username, password_hash, full_name)
+                SELECT 'plan-user-' || n, 'hash', 'Plan User ' || n FROM generate_series(1, :owners) AS n
+                """).setParameter("owners", OWNERS).executeUpdate();
+        entityManager.createNativeQuery("""
+                INSERT INTO cards (owner_id, masked_number, last4, card_number_sealed, status, expiration_date,
+                                   balance, created_at)
+                SELECT o.id,
+                       '**** **** **** ' || c.last4,
+                       c.last4,
+                       decode(md5(CAST(n AS text)), 'hex'),
+                       CASE WHEN n % 50 = 0 THEN 'EXPIRED' WHEN n % 12 = 0 THEN 'BLOCKED' ELSE 'ACTIVE' END,
+                       current_date + 365,
+                       round(CAST(random() * 10000 AS numeric), 2),
+                       now() - n * interval '1 minute'
+                FROM generate_series(1, :cards) AS n
+                CROSS JOIN LATERAL (SELECT lpad(CAST((hashint4(-n) & 2147483647) % 10000 AS text), 4, '0') AS last4) c
+                JOIN (SELECT id, row_number() OVER (ORDER BY id) AS rn FROM users WHERE username LIKE 'plan-user-%') o
+                  ON o.rn = CASE WHEN hashint4(n + :cards) & 3 = 0 THEN 1
+                                 ELSE 1 + (hashint4(n) & 2147483647) % :owners END
+                """).setParameter("cards", CARDS).setParameter("owners", OWNERS).executeUpdate();
+        entityManager.createNativeQuery("ANALYZE users").executeUpdate();
+        entityManager.createNativeQuery("ANALYZE cards").executeUpdate();
+    }
+
+    private CardReads cardReads() {
+        Object[] reads = (Object[]) entityManager.createNativeQuery("""
+                SELECT seq_scan, seq_tup_read + coalesce(idx_tup_fetch, 0)
+                FROM pg_stat_xact_user_tables
+                WHERE schemaname = current_schema() AND relname = 'cards'
+                """).getSingleResult();
+        return new CardReads(((Number) reads[0]).longValue(), ((Number) reads[1]).longValue());
+    }
+
+    /**
+     * Owner, status, masked number and balance filters in every combination, each in the shapes the specification
+     * turns into different predicates.
+     */
+    private static List<CardFilterRequest> filterCombinations(UUID ownerId) {
+        List<CardFilterRequest> filters = new ArrayList<>();
+        for (UUID owner : new UUID[] {null, ownerId}) {
+            for (CardStatus status : new CardStatus[] {null, CardStatus.ACTIVE, CardStatus.BLOCKED, CardStatus.EXPIRED}) {
+                for (String maskedNumber : new String[] {null, "**** **** **** 1234", "123"}) {
+                    for (BigDecimal[] balance : new BigDecimal[][] {
+                            {null, null},
+                            {BigDecimal.valueOf(5000), null},
+                            {null, BigDecimal.valueOf(5000)},
+                            {BigDecimal.valueOf(2000), BigDecimal.valueOf(8000)}}) {
+                        CardFilterRequest filter = new CardFilterRequest();
+                        filter.setOwnerId(owner);
+                        filter.setStatus(status);
+                        filter.setMaskedNumber(maskedNumber);
+                        filter.setMinBalance(balance[0]);
+                        filter.setMaxBalance(balance[1]);
+                        filters.add(filter);
+                    }
+                }
+            }
+        }
+        return filters;
+    }
+
+    private static String describe(CardFilterRequest filter) {
+        return String.format(Locale.ROOT, "{owner=%s, status=%s, maskedNumber=%s, minBalance=%s, maxBalance=%s}",
+                filter.hasOwnerFilter() ? "set" : "-",
+                filter.getStatus(),
+                filter.getMaskedNumber(),
+                filter.getMinBalance(),
+                filter.getMaxBalance());
+    }
+
+    private record CardReads(long sequentialScans, long rows) {
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.bankcards.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.bankcards.entity.CardTransfer;
+import com.example.bankcards.support.PostgresTestDatabase;
+import jakarta.persistence.EntityManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Reads pages of the transfer history of an owner holding many cards from a seeded PostgreSQL schema and fails if
+ * a page scans {@code card_transfers} or fetches more of its rows than the per-card probes of
+ * {@link CardTransferRepository#findHistory} can return, i.e. if the cost of a page grows with the length of the
+ * history. Pages are also compared with the same rows selected the straightforward way.
+ *
+ * <p>Runs against the PostgreSQL database provided by {@link PostgresTestDatabase}.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIf(value = "com.example.bankcards.support.PostgresTestDatabase#isAvailable",
+        disabledReason = "Needs -Dit.db.url or Docker")
+class CardTransferHistoryPlanTest {
+
+    private static final String SCHEMA = "history_test_" + UUID.randomUUID().toString().replace("-", "");
+    private static final int OWNER_CARDS = 10;
+    private static final int OTHER_CARDS = 10;
+    private static final int TRANSFERS = 50_000;
+    private static final int PAGE_SIZE = 20;
+
+    @Autowired
+    private CardTransferRepository transferRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws SQLException {
+        PostgresTestDatabase.register(registry, SCHEMA);
+    }
+
+    @AfterAll
+    static void dropSchema() throws SQLException {
+        PostgresTestDatabase.execute("DROP SCHEMA " + SCHEMA + " CASCADE");
+    }
+
+    @Test
+    void historyPagesShouldReadAtMostLimitTransfersPerCardAndDirection() {
+        UUID ownerId = seed();
+        long budget = 2L * OWNER_CARDS * PAGE_SIZE;
+
+        TransferReads before = transferReads();
+        List<CardTransfer> first = transferRepository.findHistory(ownerId, PAGE_SIZE);
+        TransferReads afterFirst = transferReads();
+        CardTransfer last = first.get(first.size() - 1);
+        List<CardTransfer> second =
+                transferRepository.findHistoryAfter(ownerId, last.getCreatedAt(), last.getId(), PAGE_SIZE);
+        TransferReads afterSecond = transferReads();
+
+        assertEquals(expectedPage(ownerId, 0), ids(first));
+        assertEquals(expectedPage(ownerId, PAGE_SIZE), ids(second));
+        assertEquals(before.sequentialScans(), afterSecond.sequentialScans(), "History pages scanned card_transfers");
+        assertTrue(afterFirst.rows() - before.rows() <= budget,
+                "First page read " + (afterFirst.rows() - before.rows()) + " transfers");
+        assertTrue(afterSecond.rows() - afterFirst.rows() <= budget,
+                "Second page read " + (afterSecond.rows() - afterFirst.rows()) + " transfers");
+    }
+
+    /**
+     * One owner with {@link #OWNER_CARDS} cards and another with {@link #OTHER_CARDS}, with transfers between
+     * random cards of both, so the owner's history mixes sent, received and own-card transfers.
+     */
+    private UUID seed() {
+        entityManager.createNativeQuery("""
+                INSERT INTO users (username, password_hash, full_name)
+                VALUES ('history-owner', 'hash', 'History Owner'), ('history-other', 'hash', 'History Other')
+                """).executeUpdate();
+        entityManager.createNativeQuery("""
+                INSERT INTO cards (owner_id, masked_number, last4, card_number_sealed, status, expiration_date,
+                                   balance)
+                SELECT u.id, '**** **** **** ' || lpad(CAST(n AS text), 4, '0'), lpad(CAST(n AS text), 4, '0'),
+                       decode(md5(CAST(n AS text)), 'hex'), 'ACTIVE', current_date + 365, 0
+                FROM generate_series(1, :cards) AS n
+                JOIN users u ON u.username = CASE WHEN n <= :ownerCards THEN 'history-owner' ELSE 'history-other' END
+                """).setParameter("cards", OWNER_CARDS + OTHER_CARDS)
+                .setParameter("ownerCards", OWNER_CARDS)
+                .executeUpdate();
+        entityManager.createNativeQuery("""
+                INSERT INTO card_transfers (source_card_id, target_card_id, amount, status, created_at)
+                SELECT s.id, d.id, 1, 'COMPLETED', now() - n * interval '1 second'
+                FROM generate_series(1, :transfers) AS n
+                JOIN (SELECT id, row_number() OVER (ORDER BY id) AS rn FROM cards) s
+                  ON s.rn = 1 + (hashint4(n) & 2147483647) % :cards
+                JOIN (SELECT id, row_number() OVER (ORDER BY id) AS rn FROM cards) d
+                  ON d.rn = 1 + (s.rn + (hashint4(-n) & 2147483647) % (:cards - 1)) % :cards
+                """).setParameter("transfers", TRANSFERS)
+                .setParameter("cards", OWNER_CARDS + OTHER_CARDS)
+                .executeUpdate();
+        entityManager.createNativeQuery("ANALYZE cards").executeUpdate();
+        entityManager.createNativeQuery("ANALYZE card_transfers").executeUpdate();
+        return (UUID) entityManager.createNativeQuery("SELECT id FROM users WHERE username = 'history-owner'")
+                .getSingleResult();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<UUID> expectedPage(UUID ownerId, int offset) {
+        return entityManager.createNativeQuery("""
+                SELECT t.id FROM card_transfers t
+                WHERE t.source_card_id IN (SELECT id FROM cards WHERE owner_id = :ownerId)
+                   OR t.target_card_id IN (SELECT id FROM cards WHERE owner_id = :ownerId)
+                ORDER BY t.created_at DESC, t.id DESC OFFSET :offset LIMIT :limit
+                """).setParameter("ownerId", ownerId)
+                .setParameter("offset", offset)
+                .setParameter("limit", PAGE_SIZE)
+                .getResultList();
+    }
+
+    private static List<UUID> ids(List<CardTransfer> transfers) {
+        return transfers.stream().map(CardTransfer::getId).toList();
+    }
+
+    private TransferReads transferReads() {
+        Object[] reads = (Object[]) entityManager.createNativeQuery("""
+                SELECT seq_scan, seq_tup_read + coalesce(idx_tup_fetch, 0)
+                FROM pg_stat_xact_user_tables
+                WHERE schemaname = current_schema() AND relname = 'card_transfers'
+                """).getSingleResult();
+        return new TransferReads(((Number) reads[0]).longValue(), ((Number) reads[1]).longValue());
+    }
+
+    private record TransferReads(long sequentialScans, long rows) {
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.bankcards.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.example.bankcards.dto.transfer.TransferResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.CardTransfer;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.TransferStatus;
+import com.example.bankcards.entity.UserAccount;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Set;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class CardTransferRepositoryTest {
+
+    @Autowired
+    private CardTransferRepository transferRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private UserAccount owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = new UserAccount();
+        owner.setUsername("history-owner");
+        owner.setPasswordHash("hash");
+        owner.setFullName("History Owner");
+        owner.setRoles(Set.of(Role.USER));
+        entityManager.persist(owner);
+
+        Card first = card("1111");
+        Card second = card("2222");
+        for (int i = 0; i < 30; i++) {
+            CardTransfer transfer = new CardTransfer();
+            transfer.setSourceCard(i % 2 == 0 ? first : second);
+            transfer.setTargetCard(i % 2 == 0 ? second : first);
+            transfer.setAmount(BigDecimal.ONE);
+            transfer.setStatus(TransferStatus.COMPLETED);
+            entityManager.persist(transfer);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findResponsesByOwnerId_shouldLoadHistoryPageWithPageAndCountStatementsOnly() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Page<TransferResponse> page = transferRepository.findResponsesByOwnerId(
+                owner.getId(), PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "createdAt")));
+
+        assertEquals(20, page.getContent().size());
+        assertEquals(30, page.getTotalElements());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    private Card card(String lastDigits) {
+        Card card = new Card();
+        card.setOwner(owner);
+        card.setMaskedNumber("**** **** **** " + lastDigits);
+        card.setLast4(lastDigits);
+        card.setEncryptedNumber("cipher-" + lastDigits);
+        card.setEncryptionIv("iv");
+        card.setStatus(CardStatus.ACTIVE);
+        card.setExpirationDate(LocalDate.now().plusYears(1));
+        card.setBalance(BigDecimal.TEN);
+        entityManager.persist(card);
+        return card;
+    }
+}
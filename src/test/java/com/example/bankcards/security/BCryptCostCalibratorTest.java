@@ -0,0 +1,19 @@
+package com.example.bankcards.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class BCryptCostCalibratorTest {
+
+    @Test
+    void shouldNotGoBelowMinimumCost() {
+        assertEquals(4, BCryptCostCalibrator.calibrate(Duration.ZERO, 4, 6));
+    }
+
+    @Test
+    void shouldStopAtMaximumCost() {
+        assertEquals(5, BCryptCostCalibrator.calibrate(Duration.ofMinutes(1), 4, 5));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.bankcards.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.UserAccount;
+import com.example.bankcards.repository.UserAccountRepository;
+import com.example.bankcards.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+@ExtendWith(MockitoExtension.class)
+class BankUserDetailsServiceTest {
+
+    @Mock
+    private UserAccountRepository userRepository;
+
+    @Mock
+    private UserService userService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private BankUserDetailsService userDetailsService;
+    private UserAccount user;
+
+    @BeforeEach
+    void setUp() {
+        AppProperties properties = new AppProperties();
+        properties.getUserDetailsCache().setMaximumSize(100);
+        properties.getUserDetailsCache().setTtl(Duration.ofMinutes(5));
+        meterRegistry = new SimpleMeterRegistry();
+        userDetailsService = new BankUserDetailsService(userRepository, userService, properties, meterRegistry);
+        user = new UserAccount();
+        user.setId(UUID.randomUUID());
+        user.setUsername("user");
+        user.setPasswordHash("hash");
+        user.setRoles(EnumSet.of(Role.USER));
+    }
+
+    @Test
+    void shouldServeRepeatedLookupsFromCache() {
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
+
+        userDetailsService.loadUserByUsername("user");
+        userDetailsService.loadUserByUsername("user");
+
+        verify(userRepository, times(1)).findByUsername("user");
+        assertEquals(1.0, meterRegistry.get("cache.gets")
+                .tag("cache", BankUserDetailsService.CACHE_NAME)
+                .tag("result", "hit")
+                .functionCounter()
+                .count());
+    }
+
+    @Test
+    void shouldReloadAfterCommittedChange() {
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user));
+        userDetailsService.loadUserByUsername("user");
+
+        user.setEnabled(false);
+        userDetailsService.onUserAccountChanged(new UserAccountChanged(user.getId(), "user"));
+        UserDetails reloaded = userDetailsService.loadUserByUsername("user");
+
+        assertFalse(reloaded.isEnabled());
+        verify(userRepository, times(2)).findByUsername("user");
+    }
+
+    @Test
+    void shouldNotCacheMissingUsers() {
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("ghost"));
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("ghost"));
+
+        verify(userRepository, times(2)).findByUsername("ghost");
+    }
+
+    @Test
+    void shouldPersistUpgradedPasswordHash() {
+        AuthenticatedUser principal = AuthenticatedUser.from(user);
+
+        UserDetails upgraded = userDetailsService.updatePassword(principal, "rehashed");
+
+        verify(userService).updatePasswordHash(user.getId(), "rehashed");
+        assertEquals("rehashed", upgraded.getPassword());
+    }
+}
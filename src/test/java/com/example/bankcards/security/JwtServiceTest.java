@@ -0,0 +1,72 @@
+package com.example.bankcards.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.entity.Role;
+import io.jsonwebtoken.JwtException;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class JwtServiceTest {
+
+    private JwtService jwtService;
+    private AuthenticatedUser user;
+
+    @BeforeEach
+    void setUp() {
+        AppProperties properties = new AppProperties();
+        properties.getJwt().setSecret("0123456789abcdef0123456789abcdef");
+        properties.getJwt().setIssuer("test-issuer");
+        properties.getJwt().setAccessTokenExpirationMinutes(60);
+        properties.getJwt().setRefreshTokenExpirationDays(7);
+        properties.getJwt().setVerifiedCacheMaximumSize(100);
+        jwtService = new JwtService(properties);
+        user = new AuthenticatedUser(UUID.randomUUID(), "user", "hash", true, Set.of(Role.USER), 4L);
+    }
+
+    @Test
+    void shouldAnswerRepeatedChecksOfTheSameToken() {
+        String token = jwtService.generateAccessToken(user);
+
+        assertEquals("user", jwtService.extractUsername(token));
+        assertTrue(jwtService.isTokenValid(token, user));
+        assertFalse(jwtService.isRefreshToken(token));
+    }
+
+    @Test
+    void shouldRejectTamperedTokenEvenAfterOriginalWasCached() {
+        String token = jwtService.generateAccessToken(user);
+        jwtService.extractUsername(token);
+        String[] parts = token.split("\\.");
+        char replacement = parts[2].charAt(0) == 'A' ? 'B' : 'A';
+        String tampered = parts[0] + "." + parts[1] + "." + replacement + parts[2].substring(1);
+
+        assertThrows(JwtException.class, () -> jwtService.extractUsername(tampered));
+    }
+
+    @Test
+    void shouldRebuildPrincipalFromAccessTokenClaims() {
+        String token = jwtService.generateAccessToken(user);
+
+        AuthenticatedUser principal = jwtService.extractStatelessPrincipal(token).orElseThrow();
+
+        assertEquals(user.id(), principal.id());
+        assertEquals("user", principal.getUsername());
+        assertEquals(Set.of(Role.USER), principal.roles());
+        assertEquals(4L, principal.securityVersion());
+        assertTrue(principal.isEnabled());
+    }
+
+    @Test
+    void shouldNotRebuildPrincipalFromRefreshToken() {
+        String token = jwtService.generateRefreshToken(user);
+
+        assertTrue(jwtService.extractStatelessPrincipal(token).isEmpty());
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.bankcards.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.example.bankcards.config.AppProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class RateLimitFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        AppProperties properties = new AppProperties();
+        properties.getRateLimit().setEnabled(true);
+        properties.getRateLimit().setSweepInterval(Duration.ofMinutes(1));
+        AppProperties.RateLimitRoute route = new AppProperties.RateLimitRoute();
+        route.setPath("/api/auth/**");
+        route.setMethod("POST");
+        route.setKey(RateLimitKey.IP);
+        route.setCapacity(2);
+        route.setRefillPeriod(Duration.ofMinutes(1));
+        properties.getRateLimit().getRoutes().put("auth", route);
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RateLimitFilter(properties, meterRegistry, new ObjectMapper().registerModule(new JavaTimeModule()));
+    }
+
+    @Test
+    void shouldRejectWithRetryAfterOnceBucketIsEmpty() throws Exception {
+        assertEquals(200, send("POST", "/api/auth/login").getStatus());
+        assertEquals(200, send("POST", "/api/auth/login").getStatus());
+
+        MockHttpServletResponse rejected = send("POST", "/api/auth/login");
+
+        assertEquals(429, rejected.getStatus());
+        assertEquals("60", rejected.getHeader("Retry-After"));
+        assertEquals(1.0, meterRegistry.get(RateLimitFilter.REQUESTS_METRIC)
+                .tag("route", "auth")
+                .tag("outcome", "rejected")
+                .counter()
+                .count());
+    }
+
+    @Test
+    void shouldIgnoreRequestsOutsideConfiguredRoutes() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, send("GET", "/api/auth/login").getStatus());
+            assertEquals(200, send("POST", "/api/cards").getStatus());
+        }
+    }
+
+    private MockHttpServletResponse send(String method, String uri) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr("10.0.0.1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
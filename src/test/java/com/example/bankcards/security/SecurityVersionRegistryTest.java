@@ -0,0 +1,93 @@
+package com.example.bankcards.security;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.repository.UserAccountRepository;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class SecurityVersionRegistryTest {
+
+    @Mock
+    private UserAccountRepository userRepository;
+
+    @Spy
+    private AppProperties properties = new AppProperties();
+
+    @InjectMocks
+    private SecurityVersionRegistry registry;
+
+    @Test
+    void unchangedUsersShouldBeCurrentAtVersionZero() {
+        assertTrue(registry.isCurrent(UUID.randomUUID(), 0L));
+    }
+
+    @Test
+    void olderVersionsShouldBeRejectedAfterChange() {
+        UUID userId = UUID.randomUUID();
+
+        registry.onSecurityVersionChanged(new UserSecurityVersion(userId, 2L));
+
+        assertFalse(registry.isCurrent(userId, 1L));
+        assertTrue(registry.isCurrent(userId, 2L));
+    }
+
+    @Test
+    void reloadShouldNotMoveVersionBackwards() {
+        UUID userId = UUID.randomUUID();
+        registry.onSecurityVersionChanged(new UserSecurityVersion(userId, 5L));
+        when(userRepository.findChangedSecurityVersions()).thenReturn(List.of(new UserSecurityVersion(userId, 3L)));
+
+        registry.reload();
+
+        assertFalse(registry.isCurrent(userId, 4L));
+    }
+
+    @Test
+    void deletedUsersShouldNeverBeCurrent() {
+        UUID userId = UUID.randomUUID();
+
+        registry.onSecurityVersionChanged(UserSecurityVersion.deleted(userId));
+
+        assertFalse(registry.isCurrent(userId, Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    void refreshShouldRevokeUsersDeletedOnOtherInstances() {
+        UUID userId = UUID.randomUUID();
+        LocalDateTime since = LocalDateTime.now().minusMinutes(1);
+        when(userRepository.findDeletedUserIdsSince(since)).thenReturn(List.of(userId));
+
+        registry.refreshSince(since);
+
+        assertFalse(registry.isCurrent(userId, 0L));
+    }
+
+    @Test
+    void reloadShouldRevokeUsersDeletedWithinTheAccessTokenLifetime() {
+        UUID userId = UUID.randomUUID();
+        properties.getJwt().setAccessTokenExpirationMinutes(60);
+        when(userRepository.findDeletedUserIdsSince(any(LocalDateTime.class))).thenReturn(List.of(userId));
+
+        registry.reload();
+
+        ArgumentCaptor<LocalDateTime> since = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(userRepository).findDeletedUserIdsSince(since.capture());
+        assertTrue(since.getValue().isBefore(LocalDateTime.now().minusMinutes(59)));
+        assertFalse(registry.isCurrent(userId, 0L));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.bankcards.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TokenBucketLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(1_000));
+    private TokenBucketLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new TokenBucketLimiter(3, Duration.ofSeconds(1), now::get);
+    }
+
+    @Test
+    void shouldAllowBurstUpToCapacityThenReportWait() {
+        assertEquals(0, limiter.tryAcquire("client"));
+        assertEquals(0, limiter.tryAcquire("client"));
+        assertEquals(0, limiter.tryAcquire("client"));
+
+        assertEquals(TimeUnit.SECONDS.toNanos(1), limiter.tryAcquire("client"));
+    }
+
+    @Test
+    void shouldRefillOneTokenPerPeriod() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("client");
+        }
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_500));
+
+        assertEquals(0, limiter.tryAcquire("client"));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), limiter.tryAcquire("client"));
+    }
+
+    @Test
+    void shouldKeepSeparateBucketsPerKey() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("first");
+        }
+
+        assertEquals(0, limiter.tryAcquire("second"));
+    }
+
+    @Test
+    void shouldEvictOnlyBucketsThatHaveRefilled() {
+        limiter.tryAcquire("recent");
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        limiter.tryAcquire("latest");
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+
+        limiter.evictIdle();
+
+        assertEquals(1, limiter.size());
+    }
+}
@@ -1,13 +1,17 @@
 package  com.example.bankcards.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.example.bankcards.dto.common.CountMode;
 import com.example.bankcards.dto.common.PageResponse;
 import com.example.bankcards.dto.user.UserCreateRequest;
 import com.example.bankcards.dto.user.UserResponse;
@@ -17,6 +21,9 @@ import com.example.bankcards.entity.UserAccount;
 import com.example.bankcards.exception.BusinessException;
 import com.example.bankcards.mapper.UserMapper;
 import com.example.bankcards.repository.UserAccountRepository;
+import com.example.bankcards.security.UserSecurityVersion;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -29,10 +36,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 @ExtendWith(MockitoExtension.class)
@@ -50,6 +60,12 @@ class AdminUserServiceTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private ListingCounts listingCounts = ListingCountsTest.newListingCounts();
+
     @InjectMocks
     private AdminUserService adminUserService;
 
@@ -62,9 +78,10 @@ class AdminUserServiceTest {
         when(userMapper.toResponse(user)).thenReturn(new UserResponse(
                 user.getId(), "user", "User", "user@example.com", true, Set.of(Role.USER), null));
 
-        PageResponse<UserResponse> response = adminUserService.listUsers(null, PageRequest.of(0, 20));
+        PageResponse<UserResponse> response = adminUserService.listUsers(null, PageRequest.of(0, 20), CountMode.EXACT);
 
-        assertEquals(1, response.totalElements());
+        assertEquals(1L, response.totalElements());
+        assertEquals(CountMode.EXACT, response.count());
         verify(userRepository).findAll(any(PageRequest.class));
     }
 
@@ -78,12 +95,46 @@ class AdminUserServiceTest {
         when(userMapper.toResponse(user)).thenReturn(new UserResponse(
                 user.getId(), "user", "User", "user@example.com", true, Set.of(Role.USER), null));
 
-        adminUserService.listUsers("value", PageRequest.of(0, 20));
+        adminUserService.listUsers("value", PageRequest.of(0, 20), CountMode.EXACT);
 
         verify(userRepository)
                 .findByUsernameContainingIgnoreCaseOrFullNameContainingIgnoreCase(anyString(), anyString(), any(PageRequest.class));
     }
 
+    @Test
+    void listUsers_shouldSkipCountWhenCountModeIsNone() {
+        UserAccount user = new UserAccount();
+        user.setId(UUID.randomUUID());
+        PageRequest pageable = PageRequest.of(0, 1);
+        when(userRepository.findSliceBy(pageable)).thenReturn(new SliceImpl<>(List.of(user), pageable, true));
+
+        PageResponse<UserResponse> response = adminUserService.listUsers(null, pageable, CountMode.NONE);
+
+        assertNull(response.totalElements());
+        assertFalse(response.last());
+        verify(userRepository, never()).findAll(any(PageRequest.class));
+        verify(userRepository, never()).count();
+    }
+
+    @Test
+    void listUsers_shouldCountEquivalentSearchesOnceWhenEstimating() {
+        UserAccount user = new UserAccount();
+        user.setId(UUID.randomUUID());
+        PageRequest pageable = PageRequest.of(0, 1);
+        when(userRepository.findSliceByUsernameContainingIgnoreCaseOrFullNameContainingIgnoreCase(
+                anyString(), anyString(), eq(pageable)))
+                .thenReturn(new SliceImpl<>(List.of(user), pageable, true));
+        when(userRepository.countByUsernameContainingIgnoreCaseOrFullNameContainingIgnoreCase("Smith", "Smith"))
+                .thenReturn(40L);
+
+        adminUserService.listUsers("Smith", pageable, CountMode.ESTIMATE);
+        PageResponse<UserResponse> response = adminUserService.listUsers(" smith ", pageable, CountMode.ESTIMATE);
+
+        assertEquals(40L, response.totalElements());
+        assertEquals(CountMode.ESTIMATE, response.count());
+        verify(userRepository).countByUsernameContainingIgnoreCaseOrFullNameContainingIgnoreCase(anyString(), anyString());
+    }
+
     @Test
     void createUser_shouldPersistAndReturnResponse() {
         UserCreateRequest request = new UserCreateRequest(
@@ -164,6 +215,42 @@ class AdminUserServiceTest {
         assertEquals(false, user.isEnabled());
         assertEquals("hashed", user.getPasswordHash());
         assertEquals(response.fullName(), request.fullName());
+        assertEquals(1L, user.getSecurityVersion());
+        verify(eventPublisher).publishEvent(new UserSecurityVersion(userId, 1L));
+    }
+
+    @Test
+    void updateUser_shouldKeepSecurityVersionWhenOnlyProfileChanges() {
+        UUID userId = UUID.randomUUID();
+        UserAccount user = new UserAccount();
+        user.setId(userId);
+        user.setEmail("user@example.com");
+        user.setEnabled(true);
+        user.setRoles(EnumSet.of(Role.USER));
+        user.setSecurityVersion(3L);
+        UserUpdateRequest request = new UserUpdateRequest(
+                "Renamed",
+                "user@example.com",
+                Set.of(Role.USER),
+                true,
+                null);
+        when(userService.getById(userId)).thenReturn(user);
+
+        adminUserService.updateUser(userId, request);
+
+        assertEquals(3L, user.getSecurityVersion());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void deleteUser_shouldRevokeEmbeddedPrincipals() {
+        UUID userId = UUID.randomUUID();
+
+        adminUserService.deleteUser(userId);
+
+        verify(userRepository).insertDeletedUser(eq(userId), any(LocalDateTime.class));
+        verify(userService).delete(userId);
+        verify(eventPublisher).publishEvent(UserSecurityVersion.deleted(userId));
     }
 
     @Test
@@ -18,6 +18,7 @@ import com.example.bankcards.exception.BusinessException;
 import com.example.bankcards.security.AuthenticatedUser;
 import com.example.bankcards.security.BankUserDetailsService;
 import com.example.bankcards.security.JwtService;
+import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -50,6 +51,9 @@ class AuthenticationServiceTest {
     @Mock
     private BankUserDetailsService userDetailsService;
 
+    @Mock
+    private LastLoginRecorder lastLoginRecorder;
+
     private AppProperties properties;
     private AuthenticationService authenticationService;
 
@@ -59,7 +63,7 @@ class AuthenticationServiceTest {
         properties.getJwt().setAccessTokenExpirationMinutes(60);
         properties.getJwt().setRefreshTokenExpirationDays(7);
         properties.getJwt().setIssuer("test-issuer");
-        authenticationService = new AuthenticationService(authenticationManager, passwordEncoder, userService, jwtService, userDetailsService, properties);
+        authenticationService = new AuthenticationService(authenticationManager, passwordEncoder, userService, jwtService, userDetailsService, properties, lastLoginRecorder);
     }
 
     @Test
@@ -109,7 +113,7 @@ class AuthenticationServiceTest {
 
         TokenResponse response = authenticationService.login(request);
 
-        verify(userService).updateLastLogin(user.getId());
+        verify(lastLoginRecorder).record(eq(user.getId()), any(LocalDateTime.class));
         assertEquals("access", response.accessToken());
         assertEquals("refresh", response.refreshToken());
     }
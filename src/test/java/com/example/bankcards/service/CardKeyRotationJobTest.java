@@ -0,0 +1,179 @@
+package com.example.bankcards.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.repository.CardCipherRef;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.KeyVersionCount;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class CardKeyRotationJobTest {
+
+    private static final UUID FIRST_ID = new UUID(0L, 0L);
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private CryptoService previousCrypto;
+    private CryptoService cryptoService;
+    private CardKeyRotationJob job;
+
+    @BeforeEach
+    void setUp() {
+        previousCrypto = newCryptoService(1);
+        cryptoService = newCryptoService(2);
+        AppProperties properties = new AppProperties();
+        AppProperties.KeyRotation rotation = properties.getCrypto().getRotation();
+        rotation.setChunkSize(2);
+        rotation.setThreads(2);
+        rotation.setChunkPause(Duration.ZERO);
+        job = new CardKeyRotationJob(cardRepository, cryptoService, transactionTemplate, properties);
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            TransactionCallback<?> callback = invocation.getArgument(0);
+            return callback.doInTransaction(null);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        job.shutdown();
+    }
+
+    @Test
+    void rotateShouldReencryptEveryChunkUnderTheActiveKey() {
+        CardCipherRef first = cipherRef(new UUID(0L, 1L), "5200000000000001");
+        CardCipherRef second = cipherRef(new UUID(0L, 2L), "5200000000000002");
+        CardCipherRef third = cipherRef(new UUID(0L, 3L), "5200000000000003");
+        when(cardRepository.findCipherRefsToRewrite(eq(2), eq(FIRST_ID), any(Pageable.class)))
+                .thenReturn(List.of(first, second));
+        when(cardRepository.findCipherRefsToRewrite(eq(2), eq(second.id()), any(Pageable.class)))
+                .thenReturn(List.of(third));
+        when(cardRepository.findCipherRefsToRewrite(eq(2), eq(third.id()), any(Pageable.class)))
+                .thenReturn(List.of());
+        when(cardRepository.updateSealedNumbers(any(), any(), eq(2)))
+                .thenAnswer(invocation -> ((UUID[]) invocation.getArgument(0)).length);
+
+        job.rotate();
+
+        ArgumentCaptor<UUID[]> ids = ArgumentCaptor.forClass(UUID[].class);
+        ArgumentCaptor<byte[][]> sealed = ArgumentCaptor.forClass(byte[][].class);
+        verify(cardRepository, times(2)).updateSealedNumbers(ids.capture(), sealed.capture(), eq(2));
+        assertArrayEquals(new UUID[] {first.id(), second.id()}, ids.getAllValues().get(0));
+        assertArrayEquals(new UUID[] {third.id()}, ids.getAllValues().get(1));
+        String rotated = cryptoService.decrypt(new EncryptedData(sealed.getAllValues().get(1)[0], 2));
+        assertEquals("5200000000000003", rotated);
+        assertEquals(3, job.progress().reEncrypted());
+    }
+
+    @Test
+    void rotateShouldMoveLegacyBase64CardsIntoTheSealedColumn() {
+        EncryptedData data = cryptoService.encrypt("5200000000000001");
+        byte[] iv = Arrays.copyOfRange(data.sealed(), 0, 12);
+        byte[] cipherText = Arrays.copyOfRange(data.sealed(), 12, data.sealed().length);
+        CardCipherRef legacy = new CardCipherRef(new UUID(0L, 1L), null,
+                Base64.getEncoder().encodeToString(cipherText), Base64.getEncoder().encodeToString(iv), 2);
+        when(cardRepository.findCipherRefsToRewrite(eq(2), eq(FIRST_ID), any(Pageable.class)))
+                .thenReturn(List.of(legacy));
+        when(cardRepository.findCipherRefsToRewrite(eq(2), eq(legacy.id()), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        job.rotate();
+
+        ArgumentCaptor<byte[][]> sealed = ArgumentCaptor.forClass(byte[][].class);
+        verify(cardRepository).updateSealedNumbers(any(), sealed.capture(), eq(2));
+        assertEquals("5200000000000001", cryptoService.decrypt(new EncryptedData(sealed.getValue()[0], 2)));
+    }
+
+    @Test
+    void rotateShouldSkipUndecryptableCards() {
+        CardCipherRef broken = new CardCipherRef(new UUID(0L, 1L), null, "AAAA", "n/a", 1);
+        when(cardRepository.findCipherRefsToRewrite(eq(2), eq(FIRST_ID), any(Pageable.class)))
+                .thenReturn(List.of(broken));
+        when(cardRepository.findCipherRefsToRewrite(eq(2), eq(broken.id()), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        job.rotate();
+
+        verify(cardRepository, never()).updateSealedNumbers(any(), any(), eq(2));
+        assertEquals(1, job.progress().failed());
+    }
+
+    @Test
+    void rotateShouldRewriteTheRestOfASliceHoldingATamperedCard() {
+        CardCipherRef first = cipherRef(new UUID(0L, 1L), "5200000000000001");
+        CardCipherRef valid = cipherRef(new UUID(0L, 2L), "5200000000000002");
+        byte[] tamperedNumber = valid.sealedNumber().clone();
+        tamperedNumber[tamperedNumber.length - 1] ^= 1;
+        CardCipherRef tampered = new CardCipherRef(valid.id(), tamperedNumber, null, null, valid.keyVersion());
+        CardCipherRef third = cipherRef(new UUID(0L, 3L), "5200000000000003");
+        when(cardRepository.findCipherRefsToRewrite(eq(2), eq(FIRST_ID), any(Pageable.class)))
+                .thenReturn(List.of(first, tampered, third));
+        when(cardRepository.findCipherRefsToRewrite(eq(2), eq(third.id()), any(Pageable.class)))
+                .thenReturn(List.of());
+        when(cardRepository.updateSealedNumbers(any(), any(), eq(2)))
+                .thenAnswer(invocation -> ((UUID[]) invocation.getArgument(0)).length);
+
+        job.rotate();
+
+        ArgumentCaptor<UUID[]> ids = ArgumentCaptor.forClass(UUID[].class);
+        verify(cardRepository).updateSealedNumbers(ids.capture(), any(), eq(2));
+        assertArrayEquals(new UUID[] {first.id(), third.id()}, ids.getValue());
+        assertEquals(2, job.progress().reEncrypted());
+        assertEquals(1, job.progress().failed());
+    }
+
+    @Test
+    void progressShouldReportCardsPerKeyVersion() {
+        when(cardRepository.countByKeyVersion())
+                .thenReturn(List.of(new KeyVersionCount(1, 4), new KeyVersionCount(2, 6)));
+
+        CardKeyRotationJob.Progress progress = job.progress();
+
+        assertEquals(2, progress.activeKeyVersion());
+        assertEquals(Map.of(1, 4L, 2, 6L), progress.cardsByKeyVersion());
+    }
+
+    private CardCipherRef cipherRef(UUID id, String cardNumber) {
+        EncryptedData data = previousCrypto.encrypt(cardNumber);
+        return new CardCipherRef(id, data.sealed(), null, null, data.keyVersion());
+    }
+
+    private static CryptoService newCryptoService(int activeKeyVersion) {
+        AppProperties properties = new AppProperties();
+        properties.getCrypto().setSecretKey("0123456789abcdef0123456789abcdef");
+        properties.getCrypto().setFingerprintKey("fedcba9876543210fedcba9876543210");
+        properties.getCrypto().getKeys().put(2, "abcdef0123456789abcdef0123456789");
+        properties.getCrypto().setActiveKeyVersion(activeKeyVersion);
+        CryptoService service = new CryptoService(properties);
+        service.init();
+        return service;
+    }
+}
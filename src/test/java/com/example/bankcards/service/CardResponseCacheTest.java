@@ -0,0 +1,97 @@
+package com.example.bankcards.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.dto.card.CardResponse;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.security.UserAccountChanged;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class CardResponseCacheTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CardResponseCache cache = newCardResponseCache(meterRegistry);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void getShouldLoadOnceAndServeLaterReadsFromTheCache() {
+        CardResponse card = card(UUID.randomUUID());
+
+        cache.get(card.id(), id -> load(card));
+        CardResponse cached = cache.get(card.id(), id -> load(card));
+
+        assertEquals(card, cached);
+        assertEquals(1, loads.get());
+        assertEquals(1, meterRegistry.get(CardResponseCache.AGE_METRIC).timer().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", CardResponseCache.CACHE_NAME)
+                .tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void getShouldNotCacheMissingCards() {
+        UUID cardId = UUID.randomUUID();
+
+        assertNull(cache.get(cardId, id -> load(null)));
+        assertNull(cache.get(cardId, id -> load(null)));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void cardChangeShouldDropTheCachedCard() {
+        CardResponse card = card(UUID.randomUUID());
+        cache.get(card.id(), id -> load(card));
+
+        cache.onCardChanged(new CardChanged(card.id()));
+        cache.get(card.id(), id -> load(card));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void ownerChangeShouldDropOnlyThatOwnersCards() {
+        UUID ownerId = UUID.randomUUID();
+        CardResponse owned = card(ownerId);
+        CardResponse other = card(UUID.randomUUID());
+        cache.get(owned.id(), id -> load(owned));
+        cache.get(other.id(), id -> load(other));
+
+        cache.onUserAccountChanged(new UserAccountChanged(ownerId, "owner"));
+        cache.get(owned.id(), id -> load(owned));
+        cache.get(other.id(), id -> load(other));
+
+        assertEquals(3, loads.get());
+    }
+
+    private CardResponse load(CardResponse card) {
+        loads.incrementAndGet();
+        return card;
+    }
+
+    private static CardResponse card(UUID ownerId) {
+        return new CardResponse(
+                UUID.randomUUID(),
+                ownerId,
+                "Owner",
+                "**** **** **** 1234",
+                CardStatus.ACTIVE,
+                LocalDate.now().plusYears(1),
+                BigDecimal.TEN);
+    }
+
+    static CardResponseCache newCardResponseCache(MeterRegistry meterRegistry) {
+        AppProperties properties = new AppProperties();
+        properties.getCardCache().setMaximumSize(100);
+        properties.getCardCache().setTtl(Duration.ofMinutes(1));
+        return new CardResponseCache(properties, meterRegistry);
+    }
+}
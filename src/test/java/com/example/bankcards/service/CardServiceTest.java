@@ -1,23 +1,37 @@
 package com.example.bankcards.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.example.bankcards.dto.card.CardCreateRequest;
+import com.example.bankcards.dto.card.CardFilterRequest;
 import com.example.bankcards.dto.card.CardResponse;
+import com.example.bankcards.dto.card.CardSortKey;
+import com.example.bankcards.dto.common.CursorPage;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.UserAccount;
 import com.example.bankcards.exception.BusinessException;
+import com.example.bankcards.exception.ResourceNotFoundException;
 import com.example.bankcards.mapper.CardMapper;
+import com.example.bankcards.repository.CardListingRow;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.CardKeysetCursor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -25,13 +39,21 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 
 @ExtendWith(MockitoExtension.class)
 class CardServiceTest {
 
+    private static final byte[] SEALED = {1, 2, 3};
+
     @Mock
     private CardRepository cardRepository;
 
@@ -44,6 +66,18 @@ class CardServiceTest {
     @Mock
     private CardMapper cardMapper;
 
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private CardResponseCache cardResponseCache = CardResponseCacheTest.newCardResponseCache(new SimpleMeterRegistry());
+
     @InjectMocks
     private CardService cardService;
 
@@ -77,20 +111,24 @@ class CardServiceTest {
                 LocalDate.now().plusYears(2),
                 BigDecimal.TEN);
         when(userService.requireActiveUser(owner.getId())).thenReturn(owner);
-        when(cardRepository.existsByOwnerIdAndMaskedNumber(eq(owner.getId()), any())).thenReturn(false);
-        when(cryptoService.encrypt(request.cardNumber())).thenReturn(new EncryptedData("cipher", "iv"));
+        when(cryptoService.fingerprint(request.cardNumber())).thenReturn("fingerprint");
+        when(cardRepository.existsByPanFingerprint("fingerprint")).thenReturn(false);
+        when(cryptoService.encrypt(request.cardNumber())).thenReturn(new EncryptedData(SEALED, 2));
         when(cardMapper.toResponse(any(Card.class))).thenReturn(cardResponse);
-        when(cardRepository.save(any(Card.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(cardRepository.saveAndFlush(any(Card.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         CardResponse result = cardService.createCard(request);
 
         ArgumentCaptor<Card> captor = ArgumentCaptor.forClass(Card.class);
-        verify(cardRepository).save(captor.capture());
+        verify(cardRepository).saveAndFlush(captor.capture());
         Card saved = captor.getValue();
         assertEquals("**** **** **** 1234", saved.getMaskedNumber());
-        assertEquals("cipher", saved.getEncryptedNumber());
+        assertSame(SEALED, saved.getSealedNumber());
+        assertEquals(2, saved.getKeyVersion());
+        assertEquals("fingerprint", saved.getPanFingerprint());
         assertEquals(owner, saved.getOwner());
         assertEquals(cardResponse, result);
+        verify(ledgerService).recordOpening(saved);
     }
 
     @Test
@@ -101,9 +139,90 @@ class CardServiceTest {
                 LocalDate.now().plusYears(2),
                 BigDecimal.TEN);
         when(userService.requireActiveUser(owner.getId())).thenReturn(owner);
-        when(cardRepository.existsByOwnerIdAndMaskedNumber(eq(owner.getId()), any())).thenReturn(true);
+        when(cryptoService.fingerprint(request.cardNumber())).thenReturn("fingerprint");
+        when(cardRepository.existsByPanFingerprint("fingerprint")).thenReturn(true);
+
+        assertThrows(BusinessException.class, () -> cardService.createCard(request));
+        verify(cardRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void createCard_shouldReportDuplicateWhenUniqueConstraintFires() {
+        CardCreateRequest request = new CardCreateRequest(
+                owner.getId(),
+                "1111222233331234",
+                LocalDate.now().plusYears(2),
+                BigDecimal.TEN);
+        when(userService.requireActiveUser(owner.getId())).thenReturn(owner);
+        when(cryptoService.fingerprint(request.cardNumber())).thenReturn("fingerprint");
+        when(cardRepository.existsByPanFingerprint("fingerprint")).thenReturn(false);
+        when(cryptoService.encrypt(request.cardNumber())).thenReturn(new EncryptedData(SEALED, 2));
+        when(cardRepository.saveAndFlush(any(Card.class)))
+                .thenThrow(new DataIntegrityViolationException("uq_cards_pan_fingerprint"));
 
         assertThrows(BusinessException.class, () -> cardService.createCard(request));
+        verify(ledgerService, never()).recordOpening(any());
+    }
+
+    @Test
+    void findByCardNumber_shouldLookUpByFingerprint() {
+        Card card = new Card();
+        when(cryptoService.fingerprint("1111222233331234")).thenReturn("fingerprint");
+        when(cardRepository.findByPanFingerprint("fingerprint")).thenReturn(Optional.of(card));
+        when(cardMapper.toResponse(card)).thenReturn(cardResponse);
+
+        assertEquals(cardResponse, cardService.findByCardNumber("1111222233331234"));
+    }
+
+    @Test
+    void findByCardNumber_shouldThrowWhenUnknown() {
+        when(cryptoService.fingerprint("1111222233331234")).thenReturn("fingerprint");
+        when(cardRepository.findByPanFingerprint("fingerprint")).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> cardService.findByCardNumber("1111222233331234"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void scrollCards_shouldTrimLookAheadRowAndIssueCursorForLastCard() {
+        CardListingRow first = listingRow(BigDecimal.ONE);
+        CardListingRow second = listingRow(BigDecimal.TEN);
+        CardListingRow lookAhead = listingRow(BigDecimal.TEN);
+        when(cardRepository.findListingRows(any(Specification.class), any(Sort.class), eq(3)))
+                .thenReturn(List.of(first, second, lookAhead));
+        when(cardMapper.toResponse(any(CardListingRow.class))).thenReturn(cardResponse);
+
+        CursorPage<CardResponse> page =
+                cardService.scrollCards(new CardFilterRequest(), CardSortKey.BALANCE, Sort.Direction.ASC, null, 2);
+
+        assertEquals(2, page.items().size());
+        CardKeysetCursor cursor =
+                CardKeysetCursor.decode(page.nextCursor(), CardSortKey.BALANCE, Sort.Direction.ASC);
+        assertEquals(second.id(), cursor.id());
+        assertEquals(BigDecimal.TEN, cursor.value());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void scrollCards_shouldEndWithoutCursorOnLastPage() {
+        when(cardRepository.findListingRows(any(Specification.class), any(Sort.class), eq(3)))
+                .thenReturn(List.of(listingRow(BigDecimal.ONE)));
+        when(cardMapper.toResponse(any(CardListingRow.class))).thenReturn(cardResponse);
+
+        CursorPage<CardResponse> page =
+                cardService.scrollCards(null, CardSortKey.CREATED_AT, Sort.Direction.DESC, null, 2);
+
+        assertEquals(1, page.items().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void scrollCards_shouldRejectCursorIssuedForAnotherOrder() {
+        String cursor = CardKeysetCursor.after(listingRow(BigDecimal.ONE), CardSortKey.BALANCE, Sort.Direction.ASC)
+                .encode();
+
+        assertThrows(BusinessException.class, () ->
+                cardService.scrollCards(null, CardSortKey.BALANCE, Sort.Direction.DESC, cursor, 2));
     }
 
     @Test
@@ -127,6 +246,34 @@ class CardServiceTest {
 
         assertEquals(CardStatus.BLOCKED, card.getStatus());
         assertEquals(cardResponse, result);
+        verify(eventPublisher).publishEvent(new CardChanged(cardId));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getCardForOwner_shouldServeRepeatedReadsFromTheCache() {
+        CardListingRow row = listingRow(BigDecimal.TEN);
+        when(cardRepository.findListingRows(any(Specification.class), eq(Sort.unsorted()), eq(1)))
+                .thenReturn(List.of(row));
+        when(cardMapper.toResponse(row)).thenReturn(cardResponse);
+
+        cardService.getCardForOwner(row.id(), owner.getId());
+        CardResponse result = cardService.getCardForOwner(row.id(), owner.getId());
+
+        assertEquals(cardResponse, result);
+        verify(cardRepository).findListingRows(any(Specification.class), eq(Sort.unsorted()), eq(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getCardForOwner_shouldHideCachedCardsOfOtherOwners() {
+        CardListingRow row = listingRow(BigDecimal.TEN);
+        when(cardRepository.findListingRows(any(Specification.class), eq(Sort.unsorted()), eq(1)))
+                .thenReturn(List.of(row));
+        when(cardMapper.toResponse(row)).thenReturn(cardResponse);
+        cardService.getCard(row.id());
+
+        assertThrows(ResourceNotFoundException.class, () -> cardService.getCardForOwner(row.id(), UUID.randomUUID()));
     }
 
     @Test
@@ -139,4 +286,76 @@ class CardServiceTest {
 
         assertThrows(BusinessException.class, () -> cardService.requestBlock(cardId, owner.getId()));
     }
+
+    @Test
+    void lockCardPair_shouldReturnCardsInRequestOrderAndRecordLockWait() {
+        Card first = new Card();
+        first.setId(UUID.fromString("00000000-0000-0000-0000-000000000001"));
+        Card second = new Card();
+        second.setId(UUID.fromString("00000000-0000-0000-0000-000000000002"));
+        when(cardRepository.findWithLockingByIdInOrderByIdAsc(List.of(second.getId(), first.getId())))
+                .thenReturn(List.of(first, second));
+
+        CardPair pair = cardService.lockCardPair(second.getId(), first.getId());
+
+        assertEquals(second, pair.source());
+        assertEquals(first, pair.target());
+        assertEquals(1, meterRegistry.timer(CardService.LOCK_WAIT_METRIC).count());
+    }
+
+    @Test
+    void lockCardPair_shouldThrowWhenCardMissing() {
+        Card source = new Card();
+        source.setId(UUID.randomUUID());
+        UUID targetId = UUID.randomUUID();
+        when(cardRepository.findWithLockingByIdInOrderByIdAsc(List.of(source.getId(), targetId)))
+                .thenReturn(List.of(source));
+
+        assertThrows(ResourceNotFoundException.class, () -> cardService.lockCardPair(source.getId(), targetId));
+    }
+
+    @Test
+    void transferGuarded_shouldUpdateCardsInDatabaseIdOrder() {
+        UUID lower = UUID.fromString("7fffffff-0000-0000-0000-000000000000");
+        UUID higher = UUID.fromString("80000000-0000-0000-0000-000000000000");
+        when(cardRepository.creditIfActive(lower, owner.getId(), BigDecimal.TEN)).thenReturn(1);
+        when(cardRepository.debitIfAvailable(higher, owner.getId(), BigDecimal.TEN)).thenReturn(1);
+
+        cardService.transferGuarded(owner.getId(), higher, lower, BigDecimal.TEN);
+
+        InOrder order = inOrder(cardRepository);
+        order.verify(cardRepository).creditIfActive(lower, owner.getId(), BigDecimal.TEN);
+        order.verify(cardRepository).debitIfAvailable(higher, owner.getId(), BigDecimal.TEN);
+    }
+
+    @Test
+    void transferGuarded_shouldExplainRejectedDebit() {
+        UUID sourceId = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        UUID targetId = UUID.fromString("00000000-0000-0000-0000-000000000002");
+        Card source = new Card();
+        source.setId(sourceId);
+        source.setOwner(owner);
+        source.setStatus(CardStatus.ACTIVE);
+        source.setExpirationDate(LocalDate.now().plusYears(1));
+        source.setBalance(BigDecimal.ONE);
+        when(cardRepository.debitIfAvailable(sourceId, owner.getId(), BigDecimal.TEN)).thenReturn(0);
+        when(cardRepository.findById(sourceId)).thenReturn(Optional.of(source));
+
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> cardService.transferGuarded(owner.getId(), sourceId, targetId, BigDecimal.TEN));
+
+        assertEquals("Insufficient funds on the source card", ex.getMessage());
+    }
+
+    private CardListingRow listingRow(BigDecimal balance) {
+        return new CardListingRow(
+                UUID.randomUUID(),
+                owner.getId(),
+                owner.getFullName(),
+                "**** **** **** 1234",
+                CardStatus.ACTIVE,
+                LocalDate.now().plusYears(1),
+                balance,
+                LocalDateTime.now());
+    }
 }
@@ -0,0 +1,161 @@
+package com.example.bankcards.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.exception.CryptoException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CryptoServiceTest {
+
+    private CryptoService cryptoService;
+
+    @BeforeEach
+    void setUp() {
+        AppProperties properties = new AppProperties();
+        properties.getCrypto().setSecretKey("0123456789abcdef0123456789abcdef");
+        properties.getCrypto().setFingerprintKey("fedcba9876543210fedcba9876543210");
+        cryptoService = new CryptoService(properties);
+        cryptoService.init();
+    }
+
+    @Test
+    void shouldRoundTripSingleValue() {
+        EncryptedData encrypted = cryptoService.encrypt("4111111111111111");
+
+        assertEquals("4111111111111111", cryptoService.decrypt(encrypted));
+    }
+
+    @Test
+    void shouldReadLegacyBase64Columns() {
+        EncryptedData encrypted = cryptoService.encrypt("4111111111111111");
+        String iv = Base64.getEncoder().encodeToString(Arrays.copyOfRange(encrypted.sealed(), 0, 12));
+        String cipherText = Base64.getEncoder().encodeToString(
+                Arrays.copyOfRange(encrypted.sealed(), 12, encrypted.sealed().length));
+
+        EncryptedData legacy = EncryptedData.fromColumns(null, cipherText, iv, encrypted.keyVersion());
+
+        assertEquals("4111111111111111", cryptoService.decrypt(legacy));
+        assertThrows(CryptoException.class, () -> EncryptedData.fromColumns(null, "AAAA", "not base64!", 1));
+    }
+
+    @Test
+    void shouldKeepOlderKeyVersionsReadableAfterRotation() {
+        EncryptedData underVersionOne = cryptoService.encrypt("4111111111111111");
+        CryptoService rotated = newCryptoService(2);
+
+        EncryptedData underVersionTwo = rotated.reencrypt(underVersionOne);
+
+        assertEquals(1, underVersionOne.keyVersion());
+        assertEquals(2, underVersionTwo.keyVersion());
+        assertEquals(2, rotated.encrypt("4111111111111111").keyVersion());
+        assertEquals("4111111111111111", rotated.decrypt(underVersionOne));
+        assertEquals("4111111111111111", rotated.decrypt(underVersionTwo));
+    }
+
+    @Test
+    void shouldRejectUnknownKeyVersion() {
+        EncryptedData underVersionTwo = newCryptoService(2).encrypt("4111111111111111");
+
+        assertThrows(CryptoException.class, () -> cryptoService.decrypt(underVersionTwo));
+    }
+
+    @Test
+    void shouldRejectActiveKeyVersionWithoutKey() {
+        AppProperties properties = new AppProperties();
+        properties.getCrypto().setSecretKey("0123456789abcdef0123456789abcdef");
+        properties.getCrypto().setFingerprintKey("fedcba9876543210fedcba9876543210");
+        properties.getCrypto().setActiveKeyVersion(3);
+
+        assertThrows(IllegalStateException.class, () -> new CryptoService(properties).init());
+    }
+
+    @Test
+    void shouldRoundTripBatchWithFreshIvPerRecord() {
+        byte[] cardNumber = "4111111111111111".getBytes(StandardCharsets.UTF_8);
+
+        List<EncryptedData> sealed = cryptoService.encryptAll(List.of(cardNumber, cardNumber));
+        List<byte[]> opened = cryptoService.decryptAll(sealed);
+
+        assertFalse(Arrays.equals(
+                Arrays.copyOf(sealed.get(0).sealed(), 12), Arrays.copyOf(sealed.get(1).sealed(), 12)));
+        assertEquals(1, sealed.get(0).keyVersion());
+        assertArrayEquals(cardNumber, opened.get(0));
+        assertArrayEquals(cardNumber, opened.get(1));
+    }
+
+    @Test
+    void shouldDecryptBatchSealedUnderDifferentKeyVersions() {
+        byte[] cardNumber = "4111111111111111".getBytes(StandardCharsets.UTF_8);
+        EncryptedData underVersionOne = cryptoService.encryptAll(List.of(cardNumber)).get(0);
+        CryptoService rotated = newCryptoService(2);
+        EncryptedData underVersionTwo = rotated.encryptAll(List.of(cardNumber)).get(0);
+
+        List<byte[]> opened = rotated.decryptAll(List.of(underVersionOne, underVersionTwo));
+
+        assertEquals(2, underVersionTwo.keyVersion());
+        assertArrayEquals(cardNumber, opened.get(0));
+        assertArrayEquals(cardNumber, opened.get(1));
+    }
+
+    @Test
+    void shouldRejectTamperedRecord() {
+        EncryptedData sealed =
+                cryptoService.encryptAll(List.of("4111111111111111".getBytes(StandardCharsets.UTF_8))).get(0);
+        sealed.sealed()[sealed.sealed().length - 1] ^= 1;
+
+        assertThrows(CryptoException.class, () -> cryptoService.decryptAll(List.of(sealed)));
+    }
+
+    @Test
+    void shouldRejectTruncatedRecord() {
+        assertThrows(CryptoException.class,
+                () -> cryptoService.decryptAll(List.of(new EncryptedData(new byte[8], 1))));
+    }
+
+    @Test
+    void shouldRejectCipherTextShorterThanTag() {
+        EncryptedData encrypted = cryptoService.encrypt("4111111111111111");
+        EncryptedData truncated = new EncryptedData(Arrays.copyOf(encrypted.sealed(), 15), encrypted.keyVersion());
+
+        assertThrows(CryptoException.class, () -> cryptoService.decrypt(truncated));
+    }
+
+    @Test
+    void shouldProduceStableKeyedFingerprint() {
+        String fingerprint = cryptoService.fingerprint("4111111111111111");
+
+        assertEquals(64, fingerprint.length());
+        assertEquals(fingerprint, cryptoService.fingerprint("4111111111111111"));
+        assertNotEquals(fingerprint, cryptoService.fingerprint("4111111111111112"));
+    }
+
+    @Test
+    void shouldRejectShortFingerprintKey() {
+        AppProperties properties = new AppProperties();
+        properties.getCrypto().setSecretKey("0123456789abcdef0123456789abcdef");
+        properties.getCrypto().setFingerprintKey("too-short");
+
+        assertThrows(IllegalStateException.class, () -> new CryptoService(properties).init());
+    }
+
+    private static CryptoService newCryptoService(int activeKeyVersion) {
+        AppProperties properties = new AppProperties();
+        properties.getCrypto().setSecretKey("0123456789abcdef0123456789abcdef");
+        properties.getCrypto().setFingerprintKey("fedcba9876543210fedcba9876543210");
+        properties.getCrypto().getKeys().put(2, "abcdef0123456789abcdef0123456789");
+        properties.getCrypto().setActiveKeyVersion(activeKeyVersion);
+        CryptoService service = new CryptoService(properties);
+        service.init();
+        return service;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.bankcards.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.repository.UserAccountRepository;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class LastLoginRecorderTest {
+
+    @Mock
+    private UserAccountRepository userRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private LastLoginRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        AppProperties properties = new AppProperties();
+        properties.getLastLogin().setBatchSize(2);
+        recorder = new LastLoginRecorder(userRepository, transactionTemplate, properties);
+        lenient().doAnswer(invocation -> {
+            Consumer<TransactionStatus> action = invocation.getArgument(0);
+            action.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void flushShouldWriteOnlyTheLatestLoginPerUser() {
+        UUID userId = UUID.randomUUID();
+        LocalDateTime earlier = LocalDateTime.of(2024, 1, 1, 9, 0);
+        LocalDateTime later = earlier.plusMinutes(5);
+        recorder.record(userId, later);
+        recorder.record(userId, earlier);
+
+        recorder.flush();
+
+        ArgumentCaptor<UUID[]> ids = ArgumentCaptor.forClass(UUID[].class);
+        ArgumentCaptor<LocalDateTime[]> timestamps = ArgumentCaptor.forClass(LocalDateTime[].class);
+        verify(userRepository).updateLastLoginAt(ids.capture(), timestamps.capture());
+        assertArrayEquals(new UUID[] {userId}, ids.getValue());
+        assertArrayEquals(new LocalDateTime[] {later}, timestamps.getValue());
+    }
+
+    @Test
+    void flushShouldSplitIntoBatches() {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 5; i++) {
+            recorder.record(UUID.randomUUID(), now);
+        }
+
+        recorder.flush();
+
+        verify(userRepository, times(3)).updateLastLoginAt(any(UUID[].class), any(LocalDateTime[].class));
+    }
+
+    @Test
+    void failedFlushShouldKeepTimestampsForTheNextRun() {
+        UUID userId = UUID.randomUUID();
+        recorder.record(userId, LocalDateTime.now());
+        when(userRepository.updateLastLoginAt(any(UUID[].class), any(LocalDateTime[].class)))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenReturn(1);
+
+        recorder.flush();
+        recorder.flush();
+        recorder.flush();
+
+        verify(userRepository, times(2)).updateLastLoginAt(any(UUID[].class), any(LocalDateTime[].class));
+    }
+
+    @Test
+    void flushWithNothingPendingShouldNotTouchTheDatabase() {
+        recorder.flush();
+
+        verify(userRepository, never()).updateLastLoginAt(any(UUID[].class), any(LocalDateTime[].class));
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.bankcards.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.example.bankcards.support.PostgresTestDatabase;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Checks {@link LedgerService#takeSnapshots} against concurrent appends on PostgreSQL, where sequence numbers are
+ * handed out at insert but only become visible at commit. Runs against the database provided by
+ * {@link PostgresTestDatabase}.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(LedgerService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIf(value = "com.example.bankcards.support.PostgresTestDatabase#isAvailable",
+        disabledReason = "Needs -Dit.db.url or Docker")
+class LedgerServicePostgresTest {
+
+    private static final String SCHEMA = "ledger_test_" + UUID.randomUUID().toString().replace("-", "");
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws SQLException {
+        PostgresTestDatabase.register(registry, SCHEMA);
+    }
+
+    @AfterAll
+    static void dropSchema() throws SQLException {
+        PostgresTestDatabase.execute("DROP SCHEMA " + SCHEMA + " CASCADE");
+    }
+
+    @Test
+    void takeSnapshotsShouldSkipPastNoEntryThatCommitsAfterAHigherSequenceWithoutBlockingAppends() throws Exception {
+        UUID ownerId = insertOwner();
+        UUID lateCard = insertCard(ownerId, "0001");
+        UUID earlyCard = insertCard(ownerId, "0002");
+        settleEverything();
+        LocalDateTime createdAt = LocalDateTime.now().minusMinutes(5);
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(1);
+
+        try (Connection late = dataSource.getConnection()) {
+            late.setAutoCommit(false);
+            appendOpening(late, lateCard, new BigDecimal("10.00"), createdAt);
+            try (Connection early = dataSource.getConnection()) {
+                appendOpening(early, earlyCard, new BigDecimal("20.00"), createdAt);
+            }
+
+            assertEquals(0, takeSnapshotsPromptly(cutoff));
+            assertEquals(0, takeSnapshotsPromptly(cutoff));
+            try (Connection other = dataSource.getConnection()) {
+                appendOpening(other, insertCard(ownerId, "0004"), new BigDecimal("1.00"), createdAt);
+            }
+            assertEquals(0, snapshotsOf(earlyCard), "Entry committed after an in-flight one was snapshotted");
+
+            late.commit();
+        }
+
+        assertEquals(2, takeSnapshotsPromptly(cutoff));
+        assertEquals(1, snapshotsOf(lateCard));
+        assertEquals(1, snapshotsOf(earlyCard));
+        assertEquals(0, new BigDecimal("10.00").compareTo(ledgerService.getBalanceAt(lateCard, LocalDateTime.now())));
+    }
+
+    @Test
+    void takeSnapshotsShouldStopBeforeTheFirstEntryCreatedAfterTheCutoff() throws Exception {
+        UUID ownerId = insertOwner();
+        UUID card = insertCard(ownerId, "0003");
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(1);
+        settleEverything();
+        try (Connection connection = dataSource.getConnection()) {
+            appendOpening(connection, card, new BigDecimal("5.00"), cutoff.minusMinutes(1));
+            appendOpening(connection, card, new BigDecimal("7.00"), cutoff.plusSeconds(30));
+            appendOpening(connection, card, new BigDecimal("9.00"), cutoff.minusMinutes(1));
+        }
+
+        assertEquals(0, ledgerService.takeSnapshots(cutoff));
+        assertEquals(1, ledgerService.takeSnapshots(cutoff));
+
+        BigDecimal snapshotted = jdbcTemplate.queryForObject(
+                "SELECT balance FROM balance_snapshots WHERE card_id = ?", BigDecimal.class, card);
+        assertEquals(0, new BigDecimal("5.00").compareTo(snapshotted));
+        assertEquals(0, new BigDecimal("21.00").compareTo(ledgerService.getBalanceAt(card, LocalDateTime.now())));
+    }
+
+    @Test
+    void deletingACardShouldKeepItsLedgerEntries() throws Exception {
+        UUID ownerId = insertOwner();
+        UUID card = insertCard(ownerId, "0005");
+        try (Connection connection = dataSource.getConnection()) {
+            appendOpening(connection, card, new BigDecimal("3.00"), LocalDateTime.now().minusMinutes(5));
+        }
+
+        jdbcTemplate.update("DELETE FROM cards WHERE id = ?", card);
+        settleEverything();
+
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM ledger_entries WHERE card_id = ?", Integer.class, card));
+        assertEquals(0, snapshotsOf(card));
+    }
+
+    /**
+     * Runs snapshots twice with no appends in flight, so that the second run settles the mark noted by the first
+     * and everything appended so far is covered.
+     */
+    private void settleEverything() {
+        ledgerService.takeSnapshots(LocalDateTime.now());
+        ledgerService.takeSnapshots(LocalDateTime.now());
+    }
+
+    private int takeSnapshotsPromptly(LocalDateTime cutoff) throws Exception {
+        return CompletableFuture.supplyAsync(() -> ledgerService.takeSnapshots(cutoff)).get(5, TimeUnit.SECONDS);
+    }
+
+    private UUID insertOwner() {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO users (username, password_hash, full_name) VALUES (?, 'hash', 'Ledger User') RETURNING id",
+                UUID.class,
+                "ledger-" + UUID.randomUUID());
+    }
+
+    private UUID insertCard(UUID ownerId, String last4) {
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO cards (owner_id, masked_number, last4, status, expiration_date, balance)
+                VALUES (?, ?, ?, 'ACTIVE', current_date + 365, 0) RETURNING id
+                """, UUID.class, ownerId, "**** **** **** " + last4, last4);
+    }
+
+    private int snapshotsOf(UUID cardId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM balance_snapshots WHERE card_id = ?", Integer.class, cardId);
+    }
+
+    private static void appendOpening(Connection connection, UUID cardId, BigDecimal amount, LocalDateTime createdAt)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO ledger_entries (card_id, entry_type, amount, created_at, append_xid) "
+                        + "VALUES (?, 'OPENING', ?, ?, pg_current_xact_id())")) {
+            statement.setObject(1, cardId);
+            statement.setBigDecimal(2, amount);
+            statement.setTimestamp(3, Timestamp.valueOf(createdAt));
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.bankcards.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.bankcards.entity.BalanceSnapshot;
+import com.example.bankcards.repository.BalanceSnapshotRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerServiceTest {
+
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Mock
+    private BalanceSnapshotRepository snapshotRepository;
+
+    @InjectMocks
+    private LedgerService ledgerService;
+
+    private final UUID cardId = UUID.randomUUID();
+    private final LocalDateTime at = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+    @Test
+    void getBalanceAt_shouldAddEntriesAfterNearestSnapshot() {
+        BalanceSnapshot snapshot = new BalanceSnapshot();
+        snapshot.setLastSequence(42);
+        snapshot.setBalance(new BigDecimal("150.00"));
+        when(snapshotRepository.findFirstByCardIdAndTakenAtLessThanEqualOrderByTakenAtDesc(cardId, at))
+                .thenReturn(Optional.of(snapshot));
+        when(ledgerEntryRepository.sumAfter(cardId, 42, at)).thenReturn(new BigDecimal("-25.00"));
+
+        assertEquals(new BigDecimal("125.00"), ledgerService.getBalanceAt(cardId, at));
+    }
+
+    @Test
+    void getBalanceAt_shouldSumWholeLedgerWithoutSnapshot() {
+        when(snapshotRepository.findFirstByCardIdAndTakenAtLessThanEqualOrderByTakenAtDesc(cardId, at))
+                .thenReturn(Optional.empty());
+        when(ledgerEntryRepository.sumAfter(cardId, 0, at)).thenReturn(new BigDecimal("80.00"));
+
+        assertEquals(new BigDecimal("80.00"), ledgerService.getBalanceAt(cardId, at));
+    }
+
+    @Test
+    void takeSnapshots_shouldCoverEntriesUpToTheMarkNotedByThePreviousRun() {
+        when(snapshotRepository.tryLockSnapshots()).thenReturn(true);
+        when(ledgerEntryRepository.findLastAllocatedSequence()).thenReturn(150L, 200L);
+        when(ledgerEntryRepository.findNextXid()).thenReturn(1_000L, 1_100L);
+        assertEquals(0, ledgerService.takeSnapshots(at));
+
+        when(ledgerEntryRepository.findOldestRunningXid()).thenReturn(1_000L);
+        when(snapshotRepository.findLastSnapshotSequence()).thenReturn(100L);
+        when(ledgerEntryRepository.findSettledSequence(100L, at)).thenReturn(180L);
+        when(snapshotRepository.insertSnapshots(100L, 150L, at)).thenReturn(7);
+
+        assertEquals(7, ledgerService.takeSnapshots(at));
+        verify(ledgerEntryRepository, times(2)).findLastAllocatedSequence();
+    }
+
+    @Test
+    void takeSnapshots_shouldWaitWhileATransactionOlderThanTheMarkIsRunning() {
+        when(snapshotRepository.tryLockSnapshots()).thenReturn(true);
+        when(ledgerEntryRepository.findLastAllocatedSequence()).thenReturn(150L);
+        when(ledgerEntryRepository.findNextXid()).thenReturn(1_000L);
+        ledgerService.takeSnapshots(at);
+        when(ledgerEntryRepository.findOldestRunningXid()).thenReturn(999L);
+
+        assertEquals(0, ledgerService.takeSnapshots(at));
+        verify(ledgerEntryRepository).findLastAllocatedSequence();
+        verify(snapshotRepository, never()).insertSnapshots(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void takeSnapshots_shouldSkipWhenNoEntryBeforeCutoffIsSettled() {
+        when(snapshotRepository.tryLockSnapshots()).thenReturn(true);
+        when(ledgerEntryRepository.findLastAllocatedSequence()).thenReturn(150L);
+        when(ledgerEntryRepository.findNextXid()).thenReturn(1_000L);
+        ledgerService.takeSnapshots(at);
+        when(ledgerEntryRepository.findOldestRunningXid()).thenReturn(1_000L);
+        when(snapshotRepository.findLastSnapshotSequence()).thenReturn(100L);
+        when(ledgerEntryRepository.findSettledSequence(100L, at)).thenReturn(100L);
+
+        assertEquals(0, ledgerService.takeSnapshots(at));
+        verify(snapshotRepository, never()).insertSnapshots(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void takeSnapshots_shouldSkipWhenAnotherInstanceHoldsTheLock() {
+        when(snapshotRepository.tryLockSnapshots()).thenReturn(false);
+
+        assertEquals(0, ledgerService.takeSnapshots(at));
+        verify(snapshotRepository, never()).insertSnapshots(anyLong(), anyLong(), any());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.bankcards.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.dto.common.CountMode;
+import com.example.bankcards.dto.common.PageResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+class ListingCountsTest {
+
+    private final ListingCounts listingCounts = newListingCounts();
+    private final AtomicInteger counted = new AtomicInteger();
+
+    @Test
+    void exactShouldReportTheCountOfThePage() {
+        PageResponse<String> response = page(CountMode.EXACT, PageRequest.of(0, 2), List.of("a", "b"), true, 7);
+
+        assertEquals(7L, response.totalElements());
+        assertEquals(4, response.totalPages());
+        assertEquals(CountMode.EXACT, response.count());
+    }
+
+    @Test
+    void noneShouldOnlyReportWhetherMorePagesFollow() {
+        PageResponse<String> response = page(CountMode.NONE, PageRequest.of(0, 2), List.of("a", "b"), true, 7);
+
+        assertNull(response.totalElements());
+        assertNull(response.totalPages());
+        assertEquals(false, response.last());
+        assertEquals(0, counted.get());
+    }
+
+    @Test
+    void estimateShouldCountOncePerKeyWithinTheTtl() {
+        page(CountMode.ESTIMATE, PageRequest.of(0, 2), List.of("a", "b"), true, 7);
+        PageResponse<String> response = page(CountMode.ESTIMATE, PageRequest.of(1, 2), List.of("c", "d"), true, 9);
+
+        assertEquals(7L, response.totalElements());
+        assertEquals(CountMode.ESTIMATE, response.count());
+        assertEquals(1, counted.get());
+    }
+
+    @Test
+    void estimateShouldNeverContradictTheRowsAlreadySeen() {
+        PageResponse<String> response = page(CountMode.ESTIMATE, PageRequest.of(3, 2), List.of("g", "h"), true, 3);
+
+        assertEquals(9L, response.totalElements());
+        assertEquals(5, response.totalPages());
+    }
+
+    @Test
+    void estimateShouldReportAnExactTotalOnTheLastPage() {
+        PageResponse<String> response = page(CountMode.ESTIMATE, PageRequest.of(1, 2), List.of("c"), false, 50);
+
+        assertEquals(3L, response.totalElements());
+        assertEquals(CountMode.EXACT, response.count());
+        assertTrue(response.last());
+        assertEquals(0, counted.get());
+
+        PageResponse<String> first = page(CountMode.ESTIMATE, PageRequest.of(0, 2), List.of("a", "b"), true, 50);
+        assertEquals(3L, first.totalElements());
+    }
+
+    private PageResponse<String> page(
+            CountMode mode, Pageable pageable, List<String> content, boolean hasNext, long total) {
+        Function<Pageable, Page<String>> exact = request -> new PageImpl<>(content, request, total);
+        Function<Pageable, Slice<String>> slice = request -> new SliceImpl<>(content, request, hasNext);
+        return listingCounts.page(mode, pageable, "key", exact, slice, () -> {
+            counted.incrementAndGet();
+            return total;
+        });
+    }
+
+    static ListingCounts newListingCounts() {
+        AppProperties properties = new AppProperties();
+        properties.getListingCountCache().setMaximumSize(100);
+        properties.getListingCountCache().setTtl(Duration.ofMinutes(1));
+        return new ListingCounts(properties, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.bankcards.service;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardRepository;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class PanFingerprintBackfillTest {
+
+    private static final UUID FIRST_ID = new UUID(0L, 0L);
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private CryptoService cryptoService;
+    private PanFingerprintBackfill backfill;
+
+    @BeforeEach
+    void setUp() {
+        AppProperties properties = new AppProperties();
+        properties.getCrypto().setSecretKey("0123456789abcdef0123456789abcdef");
+        properties.getCrypto().setFingerprintKey("fedcba9876543210fedcba9876543210");
+        properties.getCrypto().getFingerprintBackfill().setChunkPause(Duration.ZERO);
+        cryptoService = new CryptoService(properties);
+        cryptoService.init();
+        backfill = new PanFingerprintBackfill(cardRepository, cryptoService, transactionTemplate, properties);
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            TransactionCallback<?> callback = invocation.getArgument(0);
+            return callback.doInTransaction(null);
+        });
+    }
+
+    @Test
+    void backfillShouldWriteFingerprintsWithGuardedUpdatesAndSkipConcurrentlyChangedCards() {
+        Card first = card(new UUID(0L, 1L), "5200000000000001");
+        Card second = card(new UUID(0L, 2L), "5200000000000002");
+        when(cardRepository.tryLockFingerprintBackfill()).thenReturn(true);
+        when(cardRepository.findTop500ByPanFingerprintIsNullAndIdGreaterThanOrderByIdAsc(FIRST_ID))
+                .thenReturn(List.of(first, second));
+        when(cardRepository.findTop500ByPanFingerprintIsNullAndIdGreaterThanOrderByIdAsc(second.getId()))
+                .thenReturn(List.of());
+        when(cardRepository.updatePanFingerprintIfAbsent(first.getId(), fingerprint("5200000000000001")))
+                .thenReturn(1);
+        when(cardRepository.updatePanFingerprintIfAbsent(second.getId(), fingerprint("5200000000000002")))
+                .thenReturn(0);
+
+        backfill.backfill();
+
+        verify(cardRepository).updatePanFingerprintIfAbsent(first.getId(), fingerprint("5200000000000001"));
+        verify(cardRepository).updatePanFingerprintIfAbsent(second.getId(), fingerprint("5200000000000002"));
+        verify(cardRepository, never()).save(any());
+        verify(cardRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void backfillShouldLeaveTheWalkToTheInstanceHoldingTheLockAndLookAgainLater() {
+        when(cardRepository.tryLockFingerprintBackfill()).thenReturn(false);
+
+        backfill.backfill();
+        backfill.backfill();
+
+        verify(cardRepository, times(2)).tryLockFingerprintBackfill();
+        verify(cardRepository, never()).findTop500ByPanFingerprintIsNullAndIdGreaterThanOrderByIdAsc(any());
+        verify(cardRepository, never()).updatePanFingerprintIfAbsent(any(), anyString());
+    }
+
+    @Test
+    void backfillShouldStopLookingOnceAWalkCompletes() {
+        when(cardRepository.tryLockFingerprintBackfill()).thenReturn(true);
+        when(cardRepository.findTop500ByPanFingerprintIsNullAndIdGreaterThanOrderByIdAsc(FIRST_ID))
+                .thenReturn(List.of());
+
+        backfill.backfill();
+        backfill.backfill();
+
+        verify(cardRepository, times(1)).findTop500ByPanFingerprintIsNullAndIdGreaterThanOrderByIdAsc(FIRST_ID);
+    }
+
+    @Test
+    void backfillShouldResumeOnTheNextRunWhenABatchFails() {
+        Card card = card(new UUID(0L, 1L), "5200000000000001");
+        when(cardRepository.tryLockFingerprintBackfill()).thenReturn(true);
+        when(cardRepository.findTop500ByPanFingerprintIsNullAndIdGreaterThanOrderByIdAsc(FIRST_ID))
+                .thenReturn(List.of(card));
+        when(cardRepository.updatePanFingerprintIfAbsent(eq(card.getId()), anyString()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key value violates unique constraint"));
+
+        assertDoesNotThrow(() -> backfill.backfill());
+        assertDoesNotThrow(() -> backfill.backfill());
+
+        verify(cardRepository, times(2)).findTop500ByPanFingerprintIsNullAndIdGreaterThanOrderByIdAsc(FIRST_ID);
+    }
+
+    private Card card(UUID id, String cardNumber) {
+        EncryptedData data = cryptoService.encrypt(cardNumber);
+        Card card = new Card();
+        card.setId(id);
+        card.setSealedNumber(data.sealed());
+        card.setKeyVersion(data.keyVersion());
+        return card;
+    }
+
+    private String fingerprint(String cardNumber) {
+        return cryptoService.fingerprint(cardNumber);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.bankcards.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.entity.TransferStatus;
+import com.example.bankcards.repository.CardTransferRepository;
+import com.example.bankcards.repository.PendingTransferRef;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.data.domain.Pageable;
+
+@ExtendWith(MockitoExtension.class)
+class PendingTransferProcessorTest {
+
+    @Mock
+    private CardTransferRepository transferRepository;
+
+    @Mock
+    private TransferService transferService;
+
+    private PendingTransferProcessor processor;
+
+    private final UUID sourceCardId = UUID.randomUUID();
+    private final UUID good = UUID.randomUUID();
+    private final UUID poison = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        AppProperties properties = new AppProperties();
+        properties.getTransfer().getAsync().setBatchSize(10);
+        properties.getTransfer().getAsync().setWorkerThreads(1);
+        processor = new PendingTransferProcessor(transferRepository, transferService, properties);
+        when(transferRepository.findRefsByStatus(eq(TransferStatus.PENDING), any(Pageable.class))).thenReturn(List.of(
+                new PendingTransferRef(good, sourceCardId), new PendingTransferRef(poison, sourceCardId)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        processor.shutdown();
+    }
+
+    @Test
+    void drainPendingTransfers_shouldFailOnlyTheTransferThatCannotBeSettled() {
+        IllegalStateException broken = new IllegalStateException("broken row");
+        // Lenient: the transfer that settles fine is called with arguments that match neither stub.
+        lenient().doThrow(broken).when(transferService).settlePendingTransfers(List.of(good, poison));
+        lenient().doThrow(broken).when(transferService).settlePendingTransfers(List.of(poison));
+
+        processor.drainPendingTransfers();
+
+        verify(transferService).settlePendingTransfers(List.of(good));
+        verify(transferService).failPendingTransfer(poison, PendingTransferProcessor.UNSETTLEABLE_REASON);
+        verify(transferService, never()).failPendingTransfer(eq(good), anyString());
+    }
+
+    @Test
+    void drainPendingTransfers_shouldLeaveTransfersPendingAfterTransientFailures() {
+        doThrow(new CannotAcquireLockException("lock timeout"))
+                .when(transferService).settlePendingTransfers(List.of(good, poison));
+
+        processor.drainPendingTransfers();
+
+        verify(transferService, never()).settlePendingTransfers(List.of(good));
+        verify(transferService, never()).failPendingTransfer(any(), anyString());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.bankcards.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import com.example.bankcards.dto.transfer.TransferExportFormat;
+import com.example.bankcards.dto.transfer.TransferResponse;
+import com.example.bankcards.entity.TransferStatus;
+import com.example.bankcards.repository.CardTransferRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class TransferExportServiceTest {
+
+    @Mock
+    private CardTransferRepository transferRepository;
+
+    private TransferExportService exportService;
+
+    private final UUID userId = UUID.randomUUID();
+    private TransferResponse transfer;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        exportService = new TransferExportService(transferRepository, objectMapper);
+        transfer = new TransferResponse(
+                UUID.fromString("00000000-0000-0000-0000-000000000001"),
+                UUID.fromString("00000000-0000-0000-0000-000000000002"),
+                UUID.fromString("00000000-0000-0000-0000-000000000003"),
+                new BigDecimal("12.50"),
+                TransferStatus.COMPLETED,
+                "Rent, \"June\"",
+                LocalDateTime.of(2024, 6, 1, 9, 30),
+                null);
+    }
+
+    @Test
+    void export_shouldWriteCsvWithQuotedFields() throws Exception {
+        when(transferRepository.streamResponsesByOwnerId(userId)).thenReturn(Stream.of(transfer));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        exportService.export(userId, TransferExportFormat.CSV, output);
+
+        assertEquals(TransferExportService.CSV_HEADER + "\n"
+                        + "00000000-0000-0000-0000-000000000001,00000000-0000-0000-0000-000000000002,"
+                        + "00000000-0000-0000-0000-000000000003,12.50,COMPLETED,\"Rent, \"\"June\"\"\","
+                        + "2024-06-01T09:30,\n",
+                output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void csvField_shouldNeutraliseValuesSpreadsheetsReadAsFormulas() {
+        assertEquals("\"'=HYPERLINK(\"\"http://evil\"\")\"", TransferExportService.csvField("=HYPERLINK(\"http://evil\")"));
+        assertEquals("'+1", TransferExportService.csvField("+1"));
+        assertEquals("'-2+3", TransferExportService.csvField("-2+3"));
+        assertEquals("'@SUM(A1)", TransferExportService.csvField("@SUM(A1)"));
+        assertEquals("'\tcmd", TransferExportService.csvField("\tcmd"));
+        assertEquals("\"'\rcmd\"", TransferExportService.csvField("\rcmd"));
+        assertEquals("Rent", TransferExportService.csvField("Rent"));
+        assertEquals("", TransferExportService.csvField(""));
+    }
+
+    @Test
+    void export_shouldWriteOneJsonObjectPerLine() throws Exception {
+        when(transferRepository.streamResponsesByOwnerId(userId)).thenReturn(Stream.of(transfer, transfer));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        exportService.export(userId, TransferExportFormat.NDJSON, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(transfer, new ObjectMapper().findAndRegisterModules().readValue(lines[0], TransferResponse.class));
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.bankcards.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.dto.transfer.TransferRequest;
+import com.example.bankcards.dto.transfer.TransferResponse;
+import com.example.bankcards.entity.CardTransfer;
+import com.example.bankcards.entity.TransferIdempotencyKey;
+import com.example.bankcards.entity.TransferStatus;
+import com.example.bankcards.exception.BusinessException;
+import com.example.bankcards.mapper.TransferMapper;
+import com.example.bankcards.repository.TransferIdempotencyKeyRepository;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+@ExtendWith(MockitoExtension.class)
+class TransferIdempotencyServiceTest {
+
+    @Mock
+    private TransferIdempotencyKeyRepository keyRepository;
+
+    @Mock
+    private TransferMapper transferMapper;
+
+    private TransferIdempotencyService idempotencyService;
+
+    private UUID userId;
+    private TransferRequest request;
+    private TransferResponse response;
+
+    @BeforeEach
+    void setUp() {
+        AppProperties properties = new AppProperties();
+        properties.getTransfer().getIdempotency().setCacheMaximumSize(100);
+        properties.getTransfer().getIdempotency().setCacheTtl(Duration.ofMinutes(5));
+        idempotencyService = new TransferIdempotencyService(keyRepository, transferMapper, properties);
+
+        userId = UUID.randomUUID();
+        request = new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), BigDecimal.TEN, null);
+        response = new TransferResponse(
+                UUID.randomUUID(),
+                request.sourceCardId(),
+                request.targetCardId(),
+                new BigDecimal("10.00"),
+                TransferStatus.COMPLETED,
+                null,
+                LocalDateTime.now(),
+                null);
+    }
+
+    @Test
+    void findReplay_shouldLoadFromRepositoryOnceAndServeFromCache() {
+        CardTransfer transfer = new CardTransfer();
+        TransferIdempotencyKey key = new TransferIdempotencyKey();
+        key.setTransfer(transfer);
+        when(keyRepository.findByUserIdAndIdempotencyKey(userId, "key-1")).thenReturn(Optional.of(key));
+        when(transferMapper.toResponse(transfer)).thenReturn(response);
+
+        assertEquals(Optional.of(response), idempotencyService.findReplay(userId, "key-1", request));
+        assertEquals(Optional.of(response), idempotencyService.findReplay(userId, "key-1", request));
+
+        verify(keyRepository, times(1)).findByUserIdAndIdempotencyKey(userId, "key-1");
+    }
+
+    @Test
+    void findReplay_shouldRereadPendingTransfersUntilTheyAreSettled() {
+        TransferResponse pending = new TransferResponse(response.id(), response.sourceCardId(),
+                response.targetCardId(), response.amount(), TransferStatus.PENDING, null, response.createdAt(), null);
+        CardTransfer transfer = new CardTransfer();
+        TransferIdempotencyKey key = new TransferIdempotencyKey();
+        key.setTransfer(transfer);
+        when(keyRepository.findByUserIdAndIdempotencyKey(userId, "key-1")).thenReturn(Optional.of(key));
+        when(transferMapper.toResponse(transfer)).thenReturn(pending, response);
+
+        idempotencyService.register(userId, "key-1", transfer, pending);
+        assertEquals(Optional.of(pending), idempotencyService.findReplay(userId, "key-1", request));
+        assertEquals(Optional.of(response), idempotencyService.findReplay(userId, "key-1", request));
+        assertEquals(Optional.of(response), idempotencyService.findReplay(userId, "key-1", request));
+
+        verify(keyRepository, times(2)).findByUserIdAndIdempotencyKey(userId, "key-1");
+    }
+
+    @Test
+    void findReplay_shouldReturnEmptyForUnknownKey() {
+        when(keyRepository.findByUserIdAndIdempotencyKey(userId, "key-1")).thenReturn(Optional.empty());
+
+        assertTrue(idempotencyService.findReplay(userId, "key-1", request).isEmpty());
+    }
+
+    @Test
+    void findReplay_shouldRejectKeyReusedForDifferentTransfer() {
+        idempotencyService.register(userId, "key-1", new CardTransfer(), response);
+        TransferRequest other = new TransferRequest(request.sourceCardId(), request.targetCardId(), BigDecimal.ONE, null);
+
+        assertThrows(BusinessException.class, () -> idempotencyService.findReplay(userId, "key-1", other));
+    }
+
+    @Test
+    void register_shouldTranslateDuplicateKey() {
+        when(keyRepository.saveAndFlush(any(TransferIdempotencyKey.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        assertThrows(BusinessException.class,
+                () -> idempotencyService.register(userId, "key-1", new CardTransfer(), response));
+    }
+}
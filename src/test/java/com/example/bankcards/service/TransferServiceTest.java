@@ -4,9 +4,17 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+import com.example.bankcards.config.AppProperties;
+import com.example.bankcards.dto.common.CursorPage;
 import com.example.bankcards.dto.transfer.TransferRequest;
 import com.example.bankcards.dto.transfer.TransferResponse;
 import com.example.bankcards.entity.Card;
@@ -18,9 +26,15 @@ import com.example.bankcards.entity.UserAccount;
 import com.example.bankcards.exception.BusinessException;
 import com.example.bankcards.mapper.TransferMapper;
 import com.example.bankcards.repository.CardTransferRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
@@ -29,7 +43,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @ExtendWith(MockitoExtension.class)
 class TransferServiceTest {
@@ -43,6 +61,21 @@ class TransferServiceTest {
     @Mock
     private TransferMapper transferMapper;
 
+    @Mock
+    private TransferIdempotencyService idempotencyService;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    @Spy
+    private AppProperties properties = new AppProperties();
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private TransferService transferService;
 
@@ -72,6 +105,13 @@ class TransferServiceTest {
         targetCard.setStatus(CardStatus.ACTIVE);
         targetCard.setExpirationDate(LocalDate.now().plusYears(1));
         targetCard.setBalance(BigDecimal.valueOf(50));
+
+        properties.getTransfer().getAsync().setEnabled(true);
+        properties.getTransfer().getOptimistic().setMaxAttempts(3);
+        properties.getTransfer().getOptimistic().setInitialBackoff(Duration.ZERO);
+        properties.getTransfer().getOptimistic().setMaxBackoff(Duration.ZERO);
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
     }
 
     @Test
@@ -79,8 +119,8 @@ class TransferServiceTest {
         TransferRequest request = new TransferRequest(sourceCard.getId(), targetCard.getId(), BigDecimal.valueOf(40), "Savings");
         UUID userId = owner.getId();
 
-        when(cardService.lockCard(sourceCard.getId())).thenReturn(sourceCard);
-        when(cardService.lockCard(targetCard.getId())).thenReturn(targetCard);
+        when(cardService.lockCardPair(sourceCard.getId(), targetCard.getId()))
+                .thenReturn(new CardPair(sourceCard, targetCard));
         when(transferRepository.save(any(CardTransfer.class))).thenAnswer(invocation -> {
             CardTransfer transfer = invocation.getArgument(0);
             transfer.setId(UUID.randomUUID());
@@ -94,7 +134,8 @@ class TransferServiceTest {
                 request.amount(),
                 TransferStatus.COMPLETED,
                 request.description(),
-                LocalDateTime.now());
+                LocalDateTime.now(),
+                null);
         when(transferMapper.toResponse(any(CardTransfer.class))).thenReturn(response);
 
         TransferResponse result = transferService.transferBetweenOwnCards(userId, request);
@@ -106,13 +147,14 @@ class TransferServiceTest {
         verify(transferRepository).save(transferCaptor.capture());
         assertEquals(request.amount(), transferCaptor.getValue().getAmount());
         assertEquals(response, result);
+        verify(ledgerService).recordTransfer(transferCaptor.getValue());
     }
 
     @Test
     void transferBetweenOwnCards_shouldFailWhenInsufficientFunds() {
         TransferRequest request = new TransferRequest(sourceCard.getId(), targetCard.getId(), BigDecimal.valueOf(400), null);
-        when(cardService.lockCard(sourceCard.getId())).thenReturn(sourceCard);
-        when(cardService.lockCard(targetCard.getId())).thenReturn(targetCard);
+        when(cardService.lockCardPair(sourceCard.getId(), targetCard.getId()))
+                .thenReturn(new CardPair(sourceCard, targetCard));
 
         assertThrows(BusinessException.class, () -> transferService.transferBetweenOwnCards(owner.getId(), request));
     }
@@ -124,9 +166,236 @@ class TransferServiceTest {
         targetCard.setOwner(anotherOwner);
         TransferRequest request = new TransferRequest(sourceCard.getId(), targetCard.getId(), BigDecimal.ONE, null);
 
-        when(cardService.lockCard(sourceCard.getId())).thenReturn(sourceCard);
-        when(cardService.lockCard(targetCard.getId())).thenReturn(targetCard);
+        when(cardService.lockCardPair(sourceCard.getId(), targetCard.getId()))
+                .thenReturn(new CardPair(sourceCard, targetCard));
 
         assertThrows(BusinessException.class, () -> transferService.transferBetweenOwnCards(owner.getId(), request));
     }
+
+    @Test
+    void transferBetweenOwnCards_shouldReplayWithoutLockingWhenKeyKnown() {
+        TransferRequest request = new TransferRequest(sourceCard.getId(), targetCard.getId(), BigDecimal.TEN, null);
+        TransferResponse original = new TransferResponse(
+                UUID.randomUUID(),
+                sourceCard.getId(),
+                targetCard.getId(),
+                request.amount(),
+                TransferStatus.COMPLETED,
+                null,
+                LocalDateTime.now(),
+                null);
+        when(idempotencyService.findReplay(owner.getId(), "key-1", request)).thenReturn(Optional.of(original));
+
+        TransferResponse result = transferService.transferBetweenOwnCards(owner.getId(), request, "key-1");
+
+        assertEquals(original, result);
+        verify(cardService, never()).lockCardPair(any(), any());
+        verify(transferRepository, never()).save(any());
+    }
+
+    @Test
+    void transferBetweenOwnCards_shouldRegisterIdempotencyKey() {
+        TransferRequest request = new TransferRequest(sourceCard.getId(), targetCard.getId(), BigDecimal.TEN, null);
+        when(idempotencyService.findReplay(owner.getId(), "key-1", request)).thenReturn(Optional.empty());
+        when(cardService.lockCardPair(sourceCard.getId(), targetCard.getId()))
+                .thenReturn(new CardPair(sourceCard, targetCard));
+        TransferResponse response = new TransferResponse(
+                UUID.randomUUID(),
+                sourceCard.getId(),
+                targetCard.getId(),
+                request.amount(),
+                TransferStatus.COMPLETED,
+                null,
+                LocalDateTime.now(),
+                null);
+        when(transferMapper.toResponse(any(CardTransfer.class))).thenReturn(response);
+
+        transferService.transferBetweenOwnCards(owner.getId(), request, "key-1");
+
+        verify(idempotencyService).register(eq(owner.getId()), eq("key-1"), any(CardTransfer.class), eq(response));
+    }
+
+    @Test
+    void transferBetweenOwnCards_shouldReplayTransferOfConcurrentRequestWithSameKey() {
+        properties.getTransfer().setStrategy(TransferStrategy.OPTIMISTIC);
+        TransferRequest request = new TransferRequest(sourceCard.getId(), targetCard.getId(), BigDecimal.TEN, null);
+        TransferResponse original = new TransferResponse(
+                UUID.randomUUID(),
+                sourceCard.getId(),
+                targetCard.getId(),
+                request.amount(),
+                TransferStatus.COMPLETED,
+                null,
+                LocalDateTime.now(),
+                null);
+        when(idempotencyService.findReplay(owner.getId(), "key-1", request))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(original));
+        when(cardService.readCardPair(sourceCard.getId(), targetCard.getId()))
+                .thenReturn(new CardPair(sourceCard, targetCard));
+        doThrow(new BusinessException("Idempotency key has already been used"))
+                .when(idempotencyService).register(eq(owner.getId()), eq("key-1"), any(CardTransfer.class), any());
+
+        TransferResponse result = transferService.transferBetweenOwnCards(owner.getId(), request, "key-1");
+
+        assertEquals(original, result);
+    }
+
+    @Test
+    void transferBetweenOwnCards_shouldRethrowWhenNoTransferWasCreatedWithTheKey() {
+        TransferRequest request = new TransferRequest(sourceCard.getId(), targetCard.getId(), BigDecimal.valueOf(400), null);
+        when(idempotencyService.findReplay(owner.getId(), "key-1", request)).thenReturn(Optional.empty());
+        when(cardService.lockCardPair(sourceCard.getId(), targetCard.getId()))
+                .thenReturn(new CardPair(sourceCard, targetCard));
+
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> transferService.transferBetweenOwnCards(owner.getId(), request, "key-1"));
+
+        assertEquals("Insufficient funds on the source card", ex.getMessage());
+    }
+
+    @Test
+    void submitTransfer_shouldPersistPendingTransferWithoutMovingFunds() {
+        TransferRequest request = new TransferRequest(sourceCard.getId(), targetCard.getId(), BigDecimal.valueOf(400), null);
+        when(cardService.requireCard(sourceCard.getId())).thenReturn(sourceCard);
+        when(cardService.requireCard(targetCard.getId())).thenReturn(targetCard);
+
+        transferService.submitTransfer(owner.getId(), request, null);
+
+        ArgumentCaptor<CardTransfer> transferCaptor = ArgumentCaptor.forClass(CardTransfer.class);
+        verify(transferRepository).save(transferCaptor.capture());
+        assertEquals(TransferStatus.PENDING, transferCaptor.getValue().getStatus());
+        verify(cardService, never()).updateBalance(any(), any());
+    }
+
+    @Test
+    void submitTransfer_shouldFailWhenAsyncDisabled() {
+        properties.getTransfer().getAsync().setEnabled(false);
+        TransferRequest request = new TransferRequest(sourceCard.getId(), targetCard.getId(), BigDecimal.ONE, null);
+
+        assertThrows(BusinessException.class, () -> transferService.submitTransfer(owner.getId(), request, null));
+    }
+
+    @Test
+    void settlePendingTransfers_shouldCompleteOrFailEachTransfer() {
+        CardTransfer affordable = pendingTransfer(BigDecimal.valueOf(70));
+        CardTransfer tooLarge = pendingTransfer(BigDecimal.valueOf(70));
+        List<UUID> ids = List.of(affordable.getId(), tooLarge.getId());
+        when(transferRepository.findForSettlement(ids, TransferStatus.PENDING)).thenReturn(List.of(affordable, tooLarge));
+        when(cardService.lockCards(Set.of(sourceCard.getId(), targetCard.getId())))
+                .thenReturn(Map.of(sourceCard.getId(), sourceCard, targetCard.getId(), targetCard));
+        doAnswer(invocation -> {
+            Card card = invocation.getArgument(0);
+            card.setBalance(invocation.getArgument(1));
+            return null;
+        }).when(cardService).updateBalance(any(Card.class), any(BigDecimal.class));
+
+        transferService.settlePendingTransfers(ids);
+
+        assertEquals(TransferStatus.COMPLETED, affordable.getStatus());
+        assertEquals(TransferStatus.FAILED, tooLarge.getStatus());
+        assertEquals("Insufficient funds on the source card", tooLarge.getFailureReason());
+        assertEquals(0, BigDecimal.valueOf(30).compareTo(sourceCard.getBalance()));
+        assertEquals(0, BigDecimal.valueOf(120).compareTo(targetCard.getBalance()));
+    }
+
+    @Test
+    void failPendingTransfer_shouldMarkTransferFailedWithoutTouchingCards() {
+        CardTransfer transfer = pendingTransfer(BigDecimal.TEN);
+        when(transferRepository.findForSettlement(List.of(transfer.getId()), TransferStatus.PENDING))
+                .thenReturn(List.of(transfer));
+
+        transferService.failPendingTransfer(transfer.getId(), "Transfer could not be settled");
+
+        assertEquals(TransferStatus.FAILED, transfer.getStatus());
+        assertEquals("Transfer could not be settled", transfer.getFailureReason());
+        verifyNoInteractions(cardService);
+    }
+
+    @Test
+    void transferBetweenOwnCards_shouldUseGuardedUpdatesWhenConfigured() {
+        properties.getTransfer().setStrategy(TransferStrategy.CONDITIONAL_UPDATE);
+        TransferRequest request = new TransferRequest(sourceCard.getId(), targetCard.getId(), BigDecimal.TEN, null);
+        when(cardService.getReference(sourceCard.getId())).thenReturn(sourceCard);
+        when(cardService.getReference(targetCard.getId())).thenReturn(targetCard);
+
+        transferService.transferBetweenOwnCards(owner.getId(), request);
+
+        verify(cardService).transferGuarded(owner.getId(), sourceCard.getId(), targetCard.getId(), BigDecimal.TEN);
+        verify(cardService, never()).lockCardPair(any(), any());
+        ArgumentCaptor<CardTransfer> transferCaptor = ArgumentCaptor.forClass(CardTransfer.class);
+        verify(transferRepository).save(transferCaptor.capture());
+        assertEquals(TransferStatus.COMPLETED, transferCaptor.getValue().getStatus());
+    }
+
+    @Test
+    void transferBetweenOwnCards_shouldRetryOptimisticConflict() {
+        properties.getTransfer().setStrategy(TransferStrategy.OPTIMISTIC);
+        TransferRequest request = new TransferRequest(sourceCard.getId(), targetCard.getId(), BigDecimal.TEN, null);
+        when(cardService.readCardPair(sourceCard.getId(), targetCard.getId()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Card.class, sourceCard.getId()))
+                .thenReturn(new CardPair(sourceCard, targetCard));
+        doAnswer(invocation -> {
+            Card card = invocation.getArgument(0);
+            card.setBalance(invocation.getArgument(1));
+            return null;
+        }).when(cardService).updateBalance(any(Card.class), any(BigDecimal.class));
+
+        transferService.transferBetweenOwnCards(owner.getId(), request);
+
+        verify(cardService, times(2)).readCardPair(sourceCard.getId(), targetCard.getId());
+        verify(cardService, never()).lockCardPair(any(), any());
+        assertEquals(BigDecimal.valueOf(90), sourceCard.getBalance());
+        assertEquals(1.0, meterRegistry.counter(TransferService.OPTIMISTIC_RETRY_METRIC).count());
+    }
+
+    @Test
+    void transferBetweenOwnCards_shouldGiveUpWhenRetryBudgetExhausted() {
+        properties.getTransfer().setStrategy(TransferStrategy.OPTIMISTIC);
+        TransferRequest request = new TransferRequest(sourceCard.getId(), targetCard.getId(), BigDecimal.TEN, null);
+        when(cardService.readCardPair(sourceCard.getId(), targetCard.getId()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Card.class, sourceCard.getId()));
+
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> transferService.transferBetweenOwnCards(owner.getId(), request));
+
+        assertEquals("Card was modified concurrently, please retry", ex.getMessage());
+        verify(cardService, times(3)).readCardPair(sourceCard.getId(), targetCard.getId());
+        assertEquals(2.0, meterRegistry.counter(TransferService.OPTIMISTIC_RETRY_METRIC).count());
+        assertEquals(1.0, meterRegistry.counter(TransferService.OPTIMISTIC_EXHAUSTED_METRIC).count());
+        verify(transferRepository, never()).save(any());
+    }
+
+    @Test
+    void getUserTransferHistory_shouldReturnCursorOfLastItemWhenMoreRowsExist() {
+        CardTransfer newest = pendingTransfer(BigDecimal.ONE);
+        newest.setCreatedAt(LocalDateTime.of(2024, 5, 2, 10, 0));
+        CardTransfer older = pendingTransfer(BigDecimal.TEN);
+        older.setCreatedAt(LocalDateTime.of(2024, 5, 1, 10, 0));
+        CardTransfer oldest = pendingTransfer(BigDecimal.TEN);
+        oldest.setCreatedAt(LocalDateTime.of(2024, 4, 30, 10, 0));
+        when(transferRepository.findHistory(owner.getId(), 3)).thenReturn(List.of(newest, older, oldest));
+
+        CursorPage<TransferResponse> page = transferService.getUserTransferHistory(owner.getId(), null, 2);
+
+        assertEquals(2, page.items().size());
+        transferService.getUserTransferHistory(owner.getId(), page.nextCursor(), 2);
+        verify(transferRepository).findHistoryAfter(owner.getId(), older.getCreatedAt(), older.getId(), 3);
+    }
+
+    @Test
+    void getUserTransferHistory_shouldRejectMalformedCursor() {
+        assertThrows(BusinessException.class,
+                () -> transferService.getUserTransferHistory(owner.getId(), "not-a-cursor", 20));
+    }
+
+    private CardTransfer pendingTransfer(BigDecimal amount) {
+        CardTransfer transfer = new CardTransfer();
+        transfer.setId(UUID.randomUUID());
+        transfer.setSourceCard(sourceCard);
+        transfer.setTargetCard(targetCard);
+        transfer.setAmount(amount);
+        transfer.setStatus(TransferStatus.PENDING);
+        return transfer;
+    }
 }
@@ -0,0 +1,86 @@
+package com.example.bankcards.support;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * PostgreSQL for tests that depend on its planner or transaction semantics. Uses the database given with
+ * {@code -Dit.db.url}, {@code -Dit.db.user} and {@code -Dit.db.password} when set, and otherwise a PostgreSQL
+ * container started once for the whole test run. Tests are skipped only when neither is available, see
+ * {@link #isAvailable()}. Each test class works in its own schema, migrated by Liquibase and dropped afterwards.
+ */
+public final class PostgresTestDatabase {
+
+    private static final String IMAGE = "postgres:15-alpine";
+
+    private static PostgreSQLContainer<?> container;
+
+    private PostgresTestDatabase() {
+    }
+
+    /**
+     * Whether a database was given or Docker is there to start one. Meant for
+     * {@code @EnabledIf("com.example.bankcards.support.PostgresTestDatabase#isAvailable")}.
+     */
+    public static boolean isAvailable() {
+        return configuredUrl() != null || DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    /**
+     * Creates {@code schema} and points the datasource and Liquibase at it; anything not qualified with a schema
+     * still resolves against {@code public}, where extensions live.
+     */
+    public static void register(DynamicPropertyRegistry registry, String schema) throws SQLException {
+        execute("CREATE SCHEMA " + schema);
+        String url = url();
+        registry.add("spring.datasource.url",
+                () -> url + (url.contains("?") ? "&" : "?") + "currentSchema=" + schema + ",public");
+        registry.add("spring.datasource.username", PostgresTestDatabase::username);
+        registry.add("spring.datasource.password", PostgresTestDatabase::password);
+        registry.add("spring.liquibase.default-schema", () -> schema);
+    }
+
+    /**
+     * Runs a statement on a connection of its own, outside the Spring context and its transactions.
+     */
+    public static void execute(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url(), username(), password());
+                Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static String url() {
+        return configuredUrl() != null ? configuredUrl() : container().getJdbcUrl();
+    }
+
+    private static String username() {
+        return configuredUrl() != null ? System.getProperty("it.db.user") : container().getUsername();
+    }
+
+    private static String password() {
+        return configuredUrl() != null ? System.getProperty("it.db.password") : container().getPassword();
+    }
+
+    private static String configuredUrl() {
+        String url = System.getProperty("it.db.url");
+        return url == null || url.isBlank() ? null : url;
+    }
+
+    /**
+     * Started on first use and left running for the other test classes; Testcontainers removes it when the JVM
+     * exits.
+     */
+    private static synchronized PostgreSQLContainer<?> container() {
+        if (container == null) {
+            container = new PostgreSQLContainer<>(IMAGE);
+            container.start();
+        }
+        return container;
+    }
+}